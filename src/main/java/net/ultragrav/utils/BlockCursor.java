@@ -0,0 +1,124 @@
+package net.ultragrav.utils;
+
+/**
+ * Reusable, allocation-free cursor over the blocks of a {@link CuboidRegion}, in the same order as
+ * {@link CuboidRegion#iterator()} (x fastest, then y, then z).
+ * <pre>{@code
+ * BlockCursor cursor = region.cursor();
+ * while (cursor.next()) {
+ *     visit(cursor.x(), cursor.y(), cursor.z());
+ * }
+ * }</pre>
+ * The bounds are captured when the cursor is (re)set, later changes to the region are not picked up.
+ */
+public class BlockCursor {
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int maxX;
+    private int maxY;
+    private int maxZ;
+
+    private int x;
+    private int y;
+    private int z;
+    private long visited;
+    private boolean done;
+
+    public BlockCursor(CuboidRegion region) {
+        reset(region);
+    }
+
+    public BlockCursor(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        reset(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Points this cursor at the start of another region.
+     *
+     * @param region the region
+     * @return this cursor
+     */
+    public BlockCursor reset(CuboidRegion region) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        return reset(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ());
+    }
+
+    public BlockCursor reset(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            throw new IllegalArgumentException("Minimum cannot be larger than maximum!");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        return reset();
+    }
+
+    /**
+     * Moves this cursor back to before the first block.
+     *
+     * @return this cursor
+     */
+    public BlockCursor reset() {
+        this.x = minX - 1;
+        this.y = minY;
+        this.z = minZ;
+        this.visited = 0;
+        this.done = false;
+        return this;
+    }
+
+    /**
+     * Advances to the next block.
+     *
+     * @return false if there are no blocks left
+     */
+    public boolean next() {
+        if (done) {
+            return false;
+        }
+        if (x++ == maxX) {
+            x = minX;
+            if (y++ == maxY) {
+                y = minY;
+                if (z++ == maxZ) {
+                    done = true;
+                    return false;
+                }
+            }
+        }
+        visited++;
+        return true;
+    }
+
+    public int x() {
+        return x;
+    }
+
+    public int y() {
+        return y;
+    }
+
+    public int z() {
+        return z;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the number of blocks visited since the last reset, the current block included.
+     */
+    public long getVisited() {
+        return visited;
+    }
+
+    public long getVolume() {
+        return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+    }
+}
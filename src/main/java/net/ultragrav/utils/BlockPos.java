@@ -0,0 +1,138 @@
+package net.ultragrav.utils;
+
+/**
+ * Static helpers for block positions packed into a single {@code long}, so position-heavy code can work on
+ * {@code long[]} instead of {@link IntVector3D} objects.
+ * <p>
+ * Layout from the most to the least significant bit: x (26 bits), z (26 bits), y (12 bits). Every component is
+ * stored in two's complement, which gives x/z a range of [-33554432, 33554431] and y a range of [-2048, 2047].
+ * Components outside of that range wrap around. Use {@link BlockPosCodec} for a different layout.
+ */
+public final class BlockPos {
+    public static final int X_BITS = 26;
+    public static final int Y_BITS = 12;
+    public static final int Z_BITS = 26;
+
+    private static final int Y_SHIFT = 0;
+    private static final int Z_SHIFT = Y_BITS;
+    private static final int X_SHIFT = Y_BITS + Z_BITS;
+
+    private static final long X_MASK = (1L << X_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+    private static final long Z_MASK = (1L << Z_BITS) - 1;
+
+    public static final int DOWN = 0;
+    public static final int UP = 1;
+    public static final int NORTH = 2;
+    public static final int SOUTH = 3;
+    public static final int WEST = 4;
+    public static final int EAST = 5;
+
+    private static final int[] OFFSET_X = {0, 0, 0, 0, -1, 1};
+    private static final int[] OFFSET_Y = {-1, 1, 0, 0, 0, 0};
+    private static final int[] OFFSET_Z = {0, 0, -1, 1, 0, 0};
+
+    private BlockPos() {
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((x & X_MASK) << X_SHIFT) | ((z & Z_MASK) << Z_SHIFT) | ((y & Y_MASK) << Y_SHIFT);
+    }
+
+    public static long pack(IntVector3D vec) {
+        return pack(vec.x, vec.y, vec.z);
+    }
+
+    public static long pack(Vector3D vec) {
+        return pack(vec.getBlockX(), vec.getBlockY(), vec.getBlockZ());
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> X_SHIFT);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << (64 - Y_BITS - Y_SHIFT) >> (64 - Y_BITS));
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << (64 - Z_BITS - Z_SHIFT) >> (64 - Z_BITS));
+    }
+
+    public static IntVector3D unpack(long packed) {
+        return new IntVector3D(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    public static Vector3D toVector(long packed) {
+        return new Vector3D(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    public static long add(long packed, int x, int y, int z) {
+        return pack(unpackX(packed) + x, unpackY(packed) + y, unpackZ(packed) + z);
+    }
+
+    public static long add(long packed, long other) {
+        return add(packed, unpackX(other), unpackY(other), unpackZ(other));
+    }
+
+    /**
+     * Moves the position the given distance towards a direction.
+     *
+     * @param packed    the packed position
+     * @param direction one of {@link #DOWN}, {@link #UP}, {@link #NORTH}, {@link #SOUTH}, {@link #WEST}, {@link #EAST}
+     * @param distance  the number of blocks to move
+     * @return the packed offset position
+     */
+    public static long offset(long packed, int direction, int distance) {
+        return add(packed, OFFSET_X[direction] * distance, OFFSET_Y[direction] * distance, OFFSET_Z[direction] * distance);
+    }
+
+    /**
+     * Returns the position adjacent to the given one in a direction.
+     *
+     * @param packed    the packed position
+     * @param direction one of {@link #DOWN}, {@link #UP}, {@link #NORTH}, {@link #SOUTH}, {@link #WEST}, {@link #EAST}
+     * @return the packed neighbor
+     */
+    public static long neighbor(long packed, int direction) {
+        return add(packed, OFFSET_X[direction], OFFSET_Y[direction], OFFSET_Z[direction]);
+    }
+
+    public static int opposite(int direction) {
+        return direction ^ 1;
+    }
+
+    public static int offsetX(int direction) {
+        return OFFSET_X[direction];
+    }
+
+    public static int offsetY(int direction) {
+        return OFFSET_Y[direction];
+    }
+
+    public static int offsetZ(int direction) {
+        return OFFSET_Z[direction];
+    }
+
+    /**
+     * Returns the key of the chunk containing the given position, see {@link #chunkKey(int, int)}.
+     */
+    public static long chunkKey(long packed) {
+        return chunkKey(unpackX(packed) >> 4, unpackZ(packed) >> 4);
+    }
+
+    /**
+     * Packs chunk coordinates into a long, x in the lower and z in the upper 32 bits.
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xFFFFFFFFL) | ((chunkZ & 0xFFFFFFFFL) << 32);
+    }
+
+    public static int chunkKeyX(long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    public static int chunkKeyZ(long chunkKey) {
+        return (int) (chunkKey >>> 32);
+    }
+}
@@ -0,0 +1,91 @@
+package net.ultragrav.utils;
+
+/**
+ * Packs block positions into a single {@code long} with a configurable number of bits per component.
+ * <p>
+ * Layout from the most to the least significant bit: x, z, y. Every component is stored in two's complement,
+ * so a component with {@code n} bits covers [-2^(n-1), 2^(n-1) - 1]. {@link #DEFAULT} uses the same layout as
+ * {@link BlockPos}, prefer the static helpers there when the default layout is enough.
+ */
+public final class BlockPosCodec {
+    public static final BlockPosCodec DEFAULT = new BlockPosCodec(BlockPos.X_BITS, BlockPos.Y_BITS, BlockPos.Z_BITS);
+
+    private final int xBits;
+    private final int yBits;
+    private final int zBits;
+
+    private final int zShift;
+    private final int xShift;
+
+    private final long xMask;
+    private final long yMask;
+    private final long zMask;
+
+    public BlockPosCodec(int xBits, int yBits, int zBits) {
+        if (xBits < 1 || yBits < 1 || zBits < 1 || xBits > 32 || yBits > 32 || zBits > 32) {
+            throw new IllegalArgumentException("Component bits must be between 1 and 32!");
+        }
+        if (xBits + yBits + zBits > 64) {
+            throw new IllegalArgumentException("Components cannot use more than 64 bits in total!");
+        }
+        this.xBits = xBits;
+        this.yBits = yBits;
+        this.zBits = zBits;
+        this.zShift = yBits;
+        this.xShift = yBits + zBits;
+        this.xMask = (1L << xBits) - 1;
+        this.yMask = (1L << yBits) - 1;
+        this.zMask = (1L << zBits) - 1;
+    }
+
+    public long pack(int x, int y, int z) {
+        return ((x & xMask) << xShift) | ((z & zMask) << zShift) | (y & yMask);
+    }
+
+    public long pack(IntVector3D vec) {
+        return pack(vec.x, vec.y, vec.z);
+    }
+
+    public int unpackX(long packed) {
+        return (int) (packed << (64 - xBits - xShift) >> (64 - xBits));
+    }
+
+    public int unpackY(long packed) {
+        return (int) (packed << (64 - yBits) >> (64 - yBits));
+    }
+
+    public int unpackZ(long packed) {
+        return (int) (packed << (64 - zBits - zShift) >> (64 - zBits));
+    }
+
+    public IntVector3D unpack(long packed) {
+        return new IntVector3D(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    public long add(long packed, int x, int y, int z) {
+        return pack(unpackX(packed) + x, unpackY(packed) + y, unpackZ(packed) + z);
+    }
+
+    /**
+     * Checks whether the given coordinates fit this codec without wrapping around.
+     */
+    public boolean fits(int x, int y, int z) {
+        return fits(x, xBits) && fits(y, yBits) && fits(z, zBits);
+    }
+
+    private static boolean fits(int value, int bits) {
+        return bits == 32 || (value >= -(1 << (bits - 1)) && value < (1 << (bits - 1)));
+    }
+
+    public int getXBits() {
+        return xBits;
+    }
+
+    public int getYBits() {
+        return yBits;
+    }
+
+    public int getZBits() {
+        return zBits;
+    }
+}
@@ -0,0 +1,41 @@
+package net.ultragrav.utils;
+
+/**
+ * Shared helpers of the open-addressing collections keyed by packed block positions.
+ */
+final class BlockPosHashing {
+    static final float LOAD_FACTOR = 0.75F;
+    static final int MIN_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private BlockPosHashing() {
+    }
+
+    /**
+     * Spreads the bits of a packed position, neighbouring positions only differ in their lowest bits.
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * Returns the power of two table size that holds the given number of elements below the load factor.
+     */
+    static int tableSize(long expected) {
+        long needed = (long) Math.ceil(expected / (double) LOAD_FACTOR);
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many elements: " + expected);
+        }
+        int size = MIN_CAPACITY;
+        while (size < needed) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    static int maxFill(int tableSize) {
+        return Math.min((int) (tableSize * LOAD_FACTOR), tableSize - 1);
+    }
+}
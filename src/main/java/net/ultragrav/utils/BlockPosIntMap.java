@@ -0,0 +1,326 @@
+package net.ultragrav.utils;
+
+import java.util.Arrays;
+
+/**
+ * Map from block positions, stored as packed longs (see {@link BlockPos}), to primitive ints. Uses an
+ * open-addressing table, so neither the keys, the values nor the iteration allocate.
+ * <p>
+ * Absent positions read as the {@link #getDefaultValue() default value}. Not thread-safe.
+ */
+public class BlockPosIntMap {
+    /**
+     * Key 0 marks a free slot, the position that packs to 0 is tracked by {@link #containsZero}.
+     */
+    private long[] keys;
+    private int[] values;
+    private boolean containsZero;
+    private int zeroValue;
+    private int mask;
+    private int maxFill;
+    private int size;
+
+    private int defaultValue;
+
+    public BlockPosIntMap() {
+        this(BlockPosHashing.MIN_CAPACITY);
+    }
+
+    public BlockPosIntMap(int expected) {
+        allocate(BlockPosHashing.tableSize(expected));
+    }
+
+    private void allocate(int tableSize) {
+        this.keys = new long[tableSize];
+        this.values = new int[tableSize];
+        this.mask = tableSize - 1;
+        this.maxFill = BlockPosHashing.maxFill(tableSize);
+    }
+
+    public int getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Sets the value returned for absent positions, 0 unless changed.
+     */
+    public void setDefaultValue(int defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int x, int y, int z) {
+        return get(BlockPos.pack(x, y, z));
+    }
+
+    public int get(IntVector3D position) {
+        return get(BlockPos.pack(position));
+    }
+
+    public int get(long packed) {
+        if (packed == 0) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                return values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(int x, int y, int z) {
+        return containsKey(BlockPos.pack(x, y, z));
+    }
+
+    public boolean containsKey(long packed) {
+        if (packed == 0) {
+            return containsZero;
+        }
+        return find(packed) >= 0;
+    }
+
+    private int find(long packed) {
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -(pos + 1);
+    }
+
+    public int put(int x, int y, int z, int value) {
+        return put(BlockPos.pack(x, y, z), value);
+    }
+
+    public int put(IntVector3D position, int value) {
+        return put(BlockPos.pack(position), value);
+    }
+
+    /**
+     * Associates the value with the position.
+     *
+     * @param packed the packed position
+     * @param value  the value
+     * @return the previous value, or the default value if there was none
+     */
+    public int put(long packed, int value) {
+        if (packed == 0) {
+            int previous = containsZero ? zeroValue : defaultValue;
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int pos = find(packed);
+        if (pos >= 0) {
+            int previous = values[pos];
+            values[pos] = value;
+            return previous;
+        }
+        insert(-pos - 1, packed, value);
+        return defaultValue;
+    }
+
+    /**
+     * Adds the increment to the value of the position, absent positions start at the default value.
+     *
+     * @param packed    the packed position
+     * @param increment the amount to add
+     * @return the previous value
+     */
+    public int addTo(long packed, int increment) {
+        if (packed == 0) {
+            int previous = containsZero ? zeroValue : defaultValue;
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = previous + increment;
+            return previous;
+        }
+        int pos = find(packed);
+        if (pos >= 0) {
+            int previous = values[pos];
+            values[pos] = previous + increment;
+            return previous;
+        }
+        insert(-pos - 1, packed, defaultValue + increment);
+        return defaultValue;
+    }
+
+    private void insert(int pos, long packed, int value) {
+        keys[pos] = packed;
+        values[pos] = value;
+        if (++size >= maxFill) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Associates the value with every block of the region.
+     *
+     * @param region the region
+     * @param value  the value
+     */
+    public void putAll(CuboidRegion region, int value) {
+        ensureCapacity((long) size + region.getArea());
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        int minX = min.getBlockX();
+        int maxX = max.getBlockX();
+        int maxY = max.getBlockY();
+        int maxZ = max.getBlockZ();
+        for (int z = min.getBlockZ(); z <= maxZ; z++) {
+            for (int y = min.getBlockY(); y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    put(BlockPos.pack(x, y, z), value);
+                }
+            }
+        }
+    }
+
+    public int remove(int x, int y, int z) {
+        return remove(BlockPos.pack(x, y, z));
+    }
+
+    public int remove(IntVector3D position) {
+        return remove(BlockPos.pack(position));
+    }
+
+    public int remove(long packed) {
+        if (packed == 0) {
+            if (!containsZero) {
+                return defaultValue;
+            }
+            containsZero = false;
+            size--;
+            return zeroValue;
+        }
+        int pos = find(packed);
+        if (pos < 0) {
+            return defaultValue;
+        }
+        int previous = values[pos];
+        size--;
+        shiftKeys(pos);
+        return previous;
+    }
+
+    /**
+     * Closes the gap left by a removed key, so that lookups never need tombstones.
+     */
+    private void shiftKeys(int pos) {
+        long[] keys = this.keys;
+        int[] values = this.values;
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            while (true) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                int slot = BlockPosHashing.mix(current) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        size = 0;
+        containsZero = false;
+        Arrays.fill(keys, 0);
+    }
+
+    /**
+     * Grows the table so that the given number of entries fit without further rehashing.
+     */
+    public void ensureCapacity(long expected) {
+        int needed = BlockPosHashing.tableSize(expected);
+        if (needed > keys.length) {
+            rehash(needed);
+        }
+    }
+
+    private void rehash(int tableSize) {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        allocate(tableSize);
+        long[] keys = this.keys;
+        int[] values = this.values;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int pos = BlockPosHashing.mix(key) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(0, 0, 0, zeroValue);
+        }
+        long[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                consumer.accept(BlockPos.unpackX(key), BlockPos.unpackY(key), BlockPos.unpackZ(key), values[i]);
+            }
+        }
+    }
+
+    public void forEachPacked(PackedEntryConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(0, zeroValue);
+        }
+        long[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                consumer.accept(key, values[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int x, int y, int z, int value);
+    }
+
+    @FunctionalInterface
+    public interface PackedEntryConsumer {
+        void accept(long packed, int value);
+    }
+}
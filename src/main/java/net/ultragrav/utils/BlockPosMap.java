@@ -0,0 +1,287 @@
+package net.ultragrav.utils;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Map from block positions, stored as packed longs (see {@link BlockPos}), to objects. Uses an open-addressing
+ * table, so neither the keys nor the iteration allocate, unlike a {@code Map<IntVector3D, V>}.
+ * <p>
+ * Null values are not supported. Not thread-safe.
+ *
+ * @param <V> Type of value
+ */
+public class BlockPosMap<V> {
+    /**
+     * Key 0 marks a free slot, the value of the position that packs to 0 is kept in {@link #zeroValue}.
+     */
+    private long[] keys;
+    private Object[] values;
+    private V zeroValue;
+    private int mask;
+    private int maxFill;
+    private int size;
+
+    public BlockPosMap() {
+        this(BlockPosHashing.MIN_CAPACITY);
+    }
+
+    public BlockPosMap(int expected) {
+        allocate(BlockPosHashing.tableSize(expected));
+    }
+
+    private void allocate(int tableSize) {
+        this.keys = new long[tableSize];
+        this.values = new Object[tableSize];
+        this.mask = tableSize - 1;
+        this.maxFill = BlockPosHashing.maxFill(tableSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(int x, int y, int z) {
+        return get(BlockPos.pack(x, y, z));
+    }
+
+    public V get(IntVector3D position) {
+        return get(BlockPos.pack(position));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long packed) {
+        if (packed == 0) {
+            return zeroValue;
+        }
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                return (V) values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        return null;
+    }
+
+    public V getOrDefault(long packed, V defaultValue) {
+        V value = get(packed);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(int x, int y, int z) {
+        return get(BlockPos.pack(x, y, z)) != null;
+    }
+
+    public boolean containsKey(long packed) {
+        return get(packed) != null;
+    }
+
+    public V put(int x, int y, int z, V value) {
+        return put(BlockPos.pack(x, y, z), value);
+    }
+
+    public V put(IntVector3D position, V value) {
+        return put(BlockPos.pack(position), value);
+    }
+
+    /**
+     * Associates the value with the position.
+     *
+     * @param packed the packed position
+     * @param value  the value
+     * @return the previous value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long packed, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null!");
+        }
+        if (packed == 0) {
+            V previous = zeroValue;
+            if (previous == null) {
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                V previous = (V) values[pos];
+                values[pos] = value;
+                return previous;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = packed;
+        values[pos] = value;
+        if (++size >= maxFill) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Associates the value with every block of the region.
+     *
+     * @param region the region
+     * @param value  the value
+     */
+    public void putAll(CuboidRegion region, V value) {
+        ensureCapacity((long) size + region.getArea());
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        int minX = min.getBlockX();
+        int maxX = max.getBlockX();
+        int maxY = max.getBlockY();
+        int maxZ = max.getBlockZ();
+        for (int z = min.getBlockZ(); z <= maxZ; z++) {
+            for (int y = min.getBlockY(); y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    put(BlockPos.pack(x, y, z), value);
+                }
+            }
+        }
+    }
+
+    public V remove(int x, int y, int z) {
+        return remove(BlockPos.pack(x, y, z));
+    }
+
+    public V remove(IntVector3D position) {
+        return remove(BlockPos.pack(position));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long packed) {
+        if (packed == 0) {
+            V previous = zeroValue;
+            if (previous != null) {
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                V previous = (V) values[pos];
+                size--;
+                shiftKeys(pos);
+                return previous;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Closes the gap left by a removed key, so that lookups never need tombstones.
+     */
+    private void shiftKeys(int pos) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            while (true) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                int slot = BlockPosHashing.mix(current) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        size = 0;
+        zeroValue = null;
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+    }
+
+    /**
+     * Grows the table so that the given number of entries fit without further rehashing.
+     */
+    public void ensureCapacity(long expected) {
+        int needed = BlockPosHashing.tableSize(expected);
+        if (needed > keys.length) {
+            rehash(needed);
+        }
+    }
+
+    private void rehash(int tableSize) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(tableSize);
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int pos = BlockPosHashing.mix(key) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (zeroValue != null) {
+            consumer.accept(0, 0, 0, zeroValue);
+        }
+        long[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                consumer.accept(BlockPos.unpackX(key), BlockPos.unpackY(key), BlockPos.unpackZ(key), (V) values[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachPacked(ObjLongConsumer<? super V> consumer) {
+        if (zeroValue != null) {
+            consumer.accept(zeroValue, 0);
+        }
+        long[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                consumer.accept((V) values[i], key);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int x, int y, int z, V value);
+    }
+}
@@ -0,0 +1,262 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.utils.function.IntTriConsumer;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of block positions stored as packed longs (see {@link BlockPos}) in an open-addressing table.
+ * Neither the keys nor the iteration allocate, unlike a {@code Set<IntVector3D>}.
+ * <p>
+ * Not thread-safe.
+ */
+public class BlockPosSet {
+    /**
+     * Key 0 marks a free slot, the position that packs to 0 is tracked by {@link #containsZero}.
+     */
+    private long[] keys;
+    private boolean containsZero;
+    private int mask;
+    private int maxFill;
+    private int size;
+
+    public BlockPosSet() {
+        this(BlockPosHashing.MIN_CAPACITY);
+    }
+
+    public BlockPosSet(int expected) {
+        allocate(BlockPosHashing.tableSize(expected));
+    }
+
+    public BlockPosSet(CuboidRegion region) {
+        this(region.getArea());
+        addAll(region);
+    }
+
+    private void allocate(int tableSize) {
+        this.keys = new long[tableSize];
+        this.mask = tableSize - 1;
+        this.maxFill = BlockPosHashing.maxFill(tableSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean add(int x, int y, int z) {
+        return add(BlockPos.pack(x, y, z));
+    }
+
+    public boolean add(IntVector3D position) {
+        return add(BlockPos.pack(position));
+    }
+
+    public boolean add(long packed) {
+        if (packed == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = packed;
+        if (++size >= maxFill) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Adds every block of the region.
+     *
+     * @param region the region
+     * @return the number of positions that were not yet in this set
+     */
+    public int addAll(CuboidRegion region) {
+        ensureCapacity((long) size + region.getArea());
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        int minX = min.getBlockX();
+        int maxX = max.getBlockX();
+        int maxY = max.getBlockY();
+        int maxZ = max.getBlockZ();
+        int added = 0;
+        for (int z = min.getBlockZ(); z <= maxZ; z++) {
+            for (int y = min.getBlockY(); y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (add(BlockPos.pack(x, y, z))) {
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return contains(BlockPos.pack(x, y, z));
+    }
+
+    public boolean contains(IntVector3D position) {
+        return contains(BlockPos.pack(position));
+    }
+
+    public boolean contains(long packed) {
+        if (packed == 0) {
+            return containsZero;
+        }
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean remove(int x, int y, int z) {
+        return remove(BlockPos.pack(x, y, z));
+    }
+
+    public boolean remove(IntVector3D position) {
+        return remove(BlockPos.pack(position));
+    }
+
+    public boolean remove(long packed) {
+        if (packed == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        long[] keys = this.keys;
+        int pos = BlockPosHashing.mix(packed) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == packed) {
+                size--;
+                shiftKeys(pos);
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Closes the gap left by a removed key, so that lookups never need tombstones.
+     */
+    private void shiftKeys(int pos) {
+        long[] keys = this.keys;
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            while (true) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                int slot = BlockPosHashing.mix(current) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        size = 0;
+        containsZero = false;
+        Arrays.fill(keys, 0);
+    }
+
+    /**
+     * Grows the table so that the given number of positions fit without further rehashing.
+     */
+    public void ensureCapacity(long expected) {
+        int needed = BlockPosHashing.tableSize(expected);
+        if (needed > keys.length) {
+            rehash(needed);
+        }
+    }
+
+    private void rehash(int tableSize) {
+        long[] old = this.keys;
+        allocate(tableSize);
+        long[] keys = this.keys;
+        for (long key : old) {
+            if (key != 0) {
+                int pos = BlockPosHashing.mix(key) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+            }
+        }
+    }
+
+    public void forEach(IntTriConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(0, 0, 0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                consumer.accept(BlockPos.unpackX(key), BlockPos.unpackY(key), BlockPos.unpackZ(key));
+            }
+        }
+    }
+
+    public void forEachPacked(LongConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the packed positions of this set, in no particular order.
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsZero) {
+            result[i++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+}
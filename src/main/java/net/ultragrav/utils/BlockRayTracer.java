@@ -0,0 +1,201 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.utils.function.BlockRayVisitor;
+
+/**
+ * Walks the exact sequence of blocks a ray passes through (Amanatides & Woo), for line of sight and block
+ * targeting. Unlike sampling points along the ray it never skips a block the ray clips, and it does not allocate
+ * per step.
+ * <pre>{@code
+ * BlockRayTracer.trace(eye, look, 5, (x, y, z, face) -> world.getBlockAt(x, y, z).isEmpty());
+ * }</pre>
+ */
+public final class BlockRayTracer {
+    private BlockRayTracer() {
+    }
+
+    /**
+     * Traces a ray through the block grid.
+     *
+     * @param origin      the origin of the ray
+     * @param direction   the direction of the ray, does not need to be normalized
+     * @param maxDistance the maximum distance from the origin
+     * @param visitor     the visitor, returns false to stop
+     * @return whether the visitor stopped the trace
+     */
+    public static boolean trace(Vector3D origin, Vector3D direction, double maxDistance, BlockRayVisitor visitor) {
+        return trace(origin, direction, maxDistance, null, visitor);
+    }
+
+    /**
+     * Traces a ray through the block grid, only visiting the blocks of the bounds. A ray starting outside the bounds
+     * starts at the block it enters them through, with the face it entered through.
+     *
+     * @param origin      the origin of the ray
+     * @param direction   the direction of the ray, does not need to be normalized
+     * @param maxDistance the maximum distance from the origin, may be infinite if there are bounds
+     * @param bounds      the blocks to visit, or null for no bounds
+     * @param visitor     the visitor, returns false to stop
+     * @return whether the visitor stopped the trace
+     */
+    public static boolean trace(Vector3D origin, Vector3D direction, double maxDistance, CuboidRegion bounds, BlockRayVisitor visitor) {
+        double length = direction.length();
+        if (length == 0 || Double.isNaN(length)) {
+            throw new IllegalArgumentException("Direction cannot be zero!");
+        }
+        if (!(maxDistance >= 0) || (bounds == null && Double.isInfinite(maxDistance))) {
+            throw new IllegalArgumentException("Max distance must be positive and finite without bounds!");
+        }
+        double dirX = direction.x / length;
+        double dirY = direction.y / length;
+        double dirZ = direction.z / length;
+
+        double tStart = 0;
+        double tEnd = maxDistance;
+        int face = -1;
+
+        int minX = Integer.MIN_VALUE;
+        int minY = Integer.MIN_VALUE;
+        int minZ = Integer.MIN_VALUE;
+        int maxX = Integer.MAX_VALUE;
+        int maxY = Integer.MAX_VALUE;
+        int maxZ = Integer.MAX_VALUE;
+        if (bounds != null) {
+            Vector3D min = bounds.getMinimumPoint();
+            Vector3D max = bounds.getMaximumPoint();
+            minX = min.getBlockX();
+            minY = min.getBlockY();
+            minZ = min.getBlockZ();
+            maxX = max.getBlockX();
+            maxY = max.getBlockY();
+            maxZ = max.getBlockZ();
+
+            // Clip the ray to the boxes of the bounds' blocks. An axis the ray is parallel to does not limit it, as
+            // long as the origin lies within the bounds on that axis (dividing would give 0 / 0 on the bound plane)
+            double enterX = Double.NEGATIVE_INFINITY;
+            double enterY = Double.NEGATIVE_INFINITY;
+            double enterZ = Double.NEGATIVE_INFINITY;
+            double exit = Double.POSITIVE_INFINITY;
+            if (dirX == 0) {
+                if (origin.x < minX || origin.x >= maxX + 1.0) {
+                    return false;
+                }
+            } else {
+                double t1 = (minX - origin.x) / dirX;
+                double t2 = (maxX + 1.0 - origin.x) / dirX;
+                enterX = Math.min(t1, t2);
+                exit = Math.max(t1, t2);
+            }
+            if (dirY == 0) {
+                if (origin.y < minY || origin.y >= maxY + 1.0) {
+                    return false;
+                }
+            } else {
+                double t1 = (minY - origin.y) / dirY;
+                double t2 = (maxY + 1.0 - origin.y) / dirY;
+                enterY = Math.min(t1, t2);
+                exit = Math.min(exit, Math.max(t1, t2));
+            }
+            if (dirZ == 0) {
+                if (origin.z < minZ || origin.z >= maxZ + 1.0) {
+                    return false;
+                }
+            } else {
+                double t1 = (minZ - origin.z) / dirZ;
+                double t2 = (maxZ + 1.0 - origin.z) / dirZ;
+                enterZ = Math.min(t1, t2);
+                exit = Math.min(exit, Math.max(t1, t2));
+            }
+
+            double enter = Math.max(enterX, Math.max(enterY, enterZ));
+            if (enter > 0) {
+                tStart = enter;
+                if (enter == enterX) {
+                    face = dirX > 0 ? BlockPos.WEST : BlockPos.EAST;
+                } else if (enter == enterY) {
+                    face = dirY > 0 ? BlockPos.DOWN : BlockPos.UP;
+                } else {
+                    face = dirZ > 0 ? BlockPos.NORTH : BlockPos.SOUTH;
+                }
+            }
+            tEnd = Math.min(tEnd, exit);
+            if (!(tStart <= tEnd)) {
+                return false;
+            }
+        }
+
+        double startX = origin.x + dirX * tStart;
+        double startY = origin.y + dirY * tStart;
+        double startZ = origin.z + dirZ * tStart;
+        // Clamp so rounding at the entry plane cannot put the first block just outside the bounds
+        int x = clamp((int) Math.floor(startX), minX, maxX);
+        int y = clamp((int) Math.floor(startY), minY, maxY);
+        int z = clamp((int) Math.floor(startZ), minZ, maxZ);
+
+        int stepX = dirX > 0 ? 1 : -1;
+        int stepY = dirY > 0 ? 1 : -1;
+        int stepZ = dirZ > 0 ? 1 : -1;
+        double deltaX = Math.abs(1 / dirX);
+        double deltaY = Math.abs(1 / dirY);
+        double deltaZ = Math.abs(1 / dirZ);
+        double nextX = tStart + boundaryDistance(startX, x, dirX);
+        double nextY = tStart + boundaryDistance(startY, y, dirY);
+        double nextZ = tStart + boundaryDistance(startZ, z, dirZ);
+        int faceX = stepX > 0 ? BlockPos.WEST : BlockPos.EAST;
+        int faceY = stepY > 0 ? BlockPos.DOWN : BlockPos.UP;
+        int faceZ = stepZ > 0 ? BlockPos.NORTH : BlockPos.SOUTH;
+
+        while (true) {
+            if (!visitor.visit(x, y, z, face)) {
+                return true;
+            }
+            if (nextX <= nextY && nextX <= nextZ) {
+                if (nextX > tEnd) {
+                    return false;
+                }
+                x += stepX;
+                if (x < minX || x > maxX) {
+                    return false;
+                }
+                nextX += deltaX;
+                face = faceX;
+            } else if (nextY <= nextZ) {
+                if (nextY > tEnd) {
+                    return false;
+                }
+                y += stepY;
+                if (y < minY || y > maxY) {
+                    return false;
+                }
+                nextY += deltaY;
+                face = faceY;
+            } else {
+                if (nextZ > tEnd) {
+                    return false;
+                }
+                z += stepZ;
+                if (z < minZ || z > maxZ) {
+                    return false;
+                }
+                nextZ += deltaZ;
+                face = faceZ;
+            }
+        }
+    }
+
+    /**
+     * Returns the distance along the ray from the position to the next block boundary on one axis.
+     */
+    private static double boundaryDistance(double position, int block, double direction) {
+        if (direction > 0) {
+            return (block + 1 - position) / direction;
+        } else if (direction < 0) {
+            return (block - position) / direction;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : Math.min(value, max);
+    }
+}
@@ -0,0 +1,145 @@
+package net.ultragrav.utils;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator over the {@link BlockPos packed} positions of a block box. Each spliterator traverses its box in
+ * the same order as {@link CuboidRegion#iterator()} (x fastest, then y, then z).
+ * <p>
+ * An untouched spliterator splits its box in two along the longest axis, on a chunk section boundary when the
+ * axis is long enough, so each half keeps whole sections together. Since that does not split off a prefix in
+ * traversal order, the spliterator does not report {@link #ORDERED}. Sizes are exact.
+ */
+public class BlockSpliterator implements Spliterator.OfLong {
+    private static final int CHARACTERISTICS = DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int maxX;
+    private int maxY;
+    private int maxZ;
+
+    private int x;
+    private int y;
+    private int z;
+    private long remaining;
+
+    public BlockSpliterator(CuboidRegion region) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        init(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ());
+    }
+
+    public BlockSpliterator(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            throw new IllegalArgumentException("Minimum cannot be larger than maximum!");
+        }
+        init(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    private void init(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.x = minX;
+        this.y = minY;
+        this.z = minZ;
+        this.remaining = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        if (remaining == 0) {
+            return false;
+        }
+        action.accept(BlockPos.pack(x, y, z));
+        remaining--;
+        if (x++ == maxX) {
+            x = minX;
+            if (y++ == maxY) {
+                y = minY;
+                z++;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+        if (remaining == 0) {
+            return;
+        }
+        int x = this.x;
+        int y = this.y;
+        for (int z = this.z; z <= maxZ; z++) {
+            for (; y <= maxY; y++) {
+                for (; x <= maxX; x++) {
+                    action.accept(BlockPos.pack(x, y, z));
+                }
+                x = minX;
+            }
+            y = minY;
+        }
+        remaining = 0;
+    }
+
+    /**
+     * Splits off the lower half of the box along its longest axis. Returns null once advancing has started.
+     */
+    @Override
+    public Spliterator.OfLong trySplit() {
+        if (x != minX || y != minY || z != minZ || remaining == 0) {
+            return null;
+        }
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+        int length = maxZ - minZ + 1;
+        BlockSpliterator prefix;
+        if (width >= height && width >= length) {
+            if (width == 1) {
+                return null;
+            }
+            int split = splitPoint(minX, maxX);
+            prefix = new BlockSpliterator(minX, minY, minZ, split - 1, maxY, maxZ);
+            init(split, minY, minZ, maxX, maxY, maxZ);
+        } else if (length >= height) {
+            int split = splitPoint(minZ, maxZ);
+            prefix = new BlockSpliterator(minX, minY, minZ, maxX, maxY, split - 1);
+            init(minX, minY, split, maxX, maxY, maxZ);
+        } else {
+            int split = splitPoint(minY, maxY);
+            prefix = new BlockSpliterator(minX, minY, minZ, maxX, split - 1, maxZ);
+            init(minX, split, minZ, maxX, maxY, maxZ);
+        }
+        return prefix;
+    }
+
+    /**
+     * Returns the first coordinate of the upper half, aligned to a chunk section if that keeps both halves non-empty.
+     */
+    private static int splitPoint(int min, int max) {
+        int middle = (int) (((long) min + max + 1) >> 1);
+        int aligned = middle & ~15;
+        return aligned > min ? aligned : middle;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+}
@@ -0,0 +1,241 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.utils.function.IntTriConsumer;
+import org.bukkit.World;
+
+import java.util.*;
+
+/**
+ * Union of {@link CuboidRegion}s minus other regions, for shapes that a single box cannot describe.
+ * <p>
+ * The shape is normalized into non-overlapping block boxes as regions are added and subtracted, so every block
+ * is counted and visited exactly once. The boxes are kept in a {@link RegionIndex}, containment checks only look
+ * at the boxes near the position instead of all of them.
+ * <p>
+ * Works on block coordinates. Not thread-safe.
+ */
+public class CompoundRegion {
+    private final World world;
+    private final Set<Box> boxes = new LinkedHashSet<>();
+    private final RegionIndex<Box> index = new RegionIndex<>();
+
+    public CompoundRegion(World world) {
+        this.world = world;
+    }
+
+    public CompoundRegion(CuboidRegion region) {
+        this(region.getWorld());
+        add(region);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Adds the blocks of the region to this shape.
+     *
+     * @param region the region
+     * @return this
+     */
+    public CompoundRegion add(CuboidRegion region) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        return add(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ());
+    }
+
+    public CompoundRegion add(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        List<Box> pieces = new ArrayList<>();
+        pieces.add(new Box(minX, minY, minZ, maxX, maxY, maxZ));
+
+        // Only keep the parts that are not covered yet
+        for (Box existing : intersecting(minX, minY, minZ, maxX, maxY, maxZ)) {
+            List<Box> remaining = new ArrayList<>();
+            for (Box piece : pieces) {
+                piece.subtract(existing, remaining);
+            }
+            pieces = remaining;
+            if (pieces.isEmpty()) {
+                return this;
+            }
+        }
+
+        for (Box piece : pieces) {
+            insert(piece);
+        }
+        return this;
+    }
+
+    /**
+     * Removes the blocks of the region from this shape.
+     *
+     * @param region the region
+     * @return this
+     */
+    public CompoundRegion subtract(CuboidRegion region) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        return subtract(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ());
+    }
+
+    public CompoundRegion subtract(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        Box cut = new Box(minX, minY, minZ, maxX, maxY, maxZ);
+        List<Box> remaining = new ArrayList<>();
+        for (Box existing : intersecting(minX, minY, minZ, maxX, maxY, maxZ)) {
+            remove(existing);
+            existing.subtract(cut, remaining);
+        }
+        for (Box piece : remaining) {
+            insert(piece);
+        }
+        return this;
+    }
+
+    public CompoundRegion add(CompoundRegion other) {
+        for (Box box : other.boxes) {
+            add(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+        }
+        return this;
+    }
+
+    public CompoundRegion subtract(CompoundRegion other) {
+        for (Box box : other.boxes) {
+            subtract(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+        }
+        return this;
+    }
+
+    private List<Box> intersecting(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        List<Box> result = new ArrayList<>();
+        index.forEachIntersecting(minX, minY, minZ, maxX, maxY, maxZ, entry -> result.add(entry.getValue()));
+        return result;
+    }
+
+    private void insert(Box box) {
+        box.entry = index.add(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, box);
+        boxes.add(box);
+    }
+
+    private void remove(Box box) {
+        index.remove(box.entry);
+        boxes.remove(box);
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return index.containsAny(x, y, z);
+    }
+
+    public boolean contains(IntVector3D position) {
+        return contains(position.x, position.y, position.z);
+    }
+
+    public boolean contains(Vector3D position) {
+        return contains(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+    }
+
+    public boolean isEmpty() {
+        return boxes.isEmpty();
+    }
+
+    /**
+     * Returns the number of blocks in this shape.
+     */
+    public long getArea() {
+        long area = 0;
+        for (Box box : boxes) {
+            area += box.volume();
+        }
+        return area;
+    }
+
+    /**
+     * Calls the consumer once with the coordinates of every block in this shape, box by box.
+     *
+     * @param consumer the consumer
+     */
+    public void forEachBlock(IntTriConsumer consumer) {
+        for (Box box : boxes) {
+            for (int z = box.minZ; z <= box.maxZ; z++) {
+                for (int y = box.minY; y <= box.maxY; y++) {
+                    for (int x = box.minX; x <= box.maxX; x++) {
+                        consumer.accept(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the non-overlapping boxes this shape consists of.
+     */
+    public List<CuboidRegion> getBoxes() {
+        List<CuboidRegion> regions = new ArrayList<>(boxes.size());
+        for (Box box : boxes) {
+            regions.add(new CuboidRegion(world, new IntVector3D(box.minX, box.minY, box.minZ), new IntVector3D(box.maxX, box.maxY, box.maxZ)));
+        }
+        return Collections.unmodifiableList(regions);
+    }
+
+    public int getBoxCount() {
+        return boxes.size();
+    }
+
+    private static final class Box {
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        private RegionIndex.Entry<Box> entry;
+
+        private Box(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            if (minX > maxX || minY > maxY || minZ > maxZ) {
+                throw new IllegalArgumentException("Minimum cannot be larger than maximum!");
+            }
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        private long volume() {
+            return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        }
+
+        /**
+         * Adds the up to six boxes making up this box minus the other one to the output.
+         */
+        private void subtract(Box other, List<Box> out) {
+            if (other.minX > maxX || other.maxX < minX || other.minY > maxY || other.maxY < minY || other.minZ > maxZ || other.maxZ < minZ) {
+                out.add(this);
+                return;
+            }
+            // Slabs along x take the full y/z extent, then y within the overlapping x range, then z
+            if (minX < other.minX) {
+                out.add(new Box(minX, minY, minZ, other.minX - 1, maxY, maxZ));
+            }
+            if (maxX > other.maxX) {
+                out.add(new Box(other.maxX + 1, minY, minZ, maxX, maxY, maxZ));
+            }
+            int innerMinX = Math.max(minX, other.minX);
+            int innerMaxX = Math.min(maxX, other.maxX);
+            if (minY < other.minY) {
+                out.add(new Box(innerMinX, minY, minZ, innerMaxX, other.minY - 1, maxZ));
+            }
+            if (maxY > other.maxY) {
+                out.add(new Box(innerMinX, other.maxY + 1, minZ, innerMaxX, maxY, maxZ));
+            }
+            int innerMinY = Math.max(minY, other.minY);
+            int innerMaxY = Math.min(maxY, other.maxY);
+            if (minZ < other.minZ) {
+                out.add(new Box(innerMinX, innerMinY, minZ, innerMaxX, innerMaxY, other.minZ - 1));
+            }
+            if (maxZ > other.maxZ) {
+                out.add(new Box(innerMinX, innerMinY, other.maxZ + 1, innerMaxX, innerMaxY, maxZ));
+            }
+        }
+    }
+}
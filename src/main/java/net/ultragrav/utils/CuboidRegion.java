@@ -5,12 +5,18 @@ import lombok.Getter;
 import lombok.Setter;
 import net.ultragrav.serializer.GravSerializable;
 import net.ultragrav.serializer.GravSerializer;
+import net.ultragrav.utils.function.IntTriConsumer;
+import net.ultragrav.utils.function.IntTriPredicate;
+import net.ultragrav.utils.function.SectionVisitor;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Getter
 @Setter
@@ -76,6 +82,12 @@ public class CuboidRegion implements GravSerializable {
     private void recalculate() {
         this.pos1 = this.pos1.clampY(0, this.world == null ? 255 : this.world.getMaxHeight());
         this.pos2 = this.pos2.clampY(0, this.world == null ? 255 : this.world.getMaxHeight());
+        this.invalidateBounds();
+    }
+
+    private void invalidateBounds() {
+        this.min = null;
+        this.max = null;
     }
 
     public Vector3D getMinimumPoint() {
@@ -115,88 +127,98 @@ public class CuboidRegion implements GravSerializable {
     public void expand(Vector3D... changes) {
         Preconditions.checkNotNull(changes);
 
+        MutableVector3D pos1 = new MutableVector3D(this.pos1);
+        MutableVector3D pos2 = new MutableVector3D(this.pos2);
+
         for (Vector3D change : changes) {
             if (change.getX() > 0.0D) {
-                if (Math.max(this.pos1.getX(), this.pos2.getX()) == this.pos1.getX()) {
-                    this.pos1 = this.pos1.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+                if (Math.max(pos1.getX(), pos2.getX()) == pos1.getX()) {
+                    pos1.add(change.getX(), 0.0D, 0.0D);
                 } else {
-                    this.pos2 = this.pos2.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+                    pos2.add(change.getX(), 0.0D, 0.0D);
                 }
-            } else if (Math.min(this.pos1.getX(), this.pos2.getX()) == this.pos1.getX()) {
-                this.pos1 = this.pos1.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+            } else if (Math.min(pos1.getX(), pos2.getX()) == pos1.getX()) {
+                pos1.add(change.getX(), 0.0D, 0.0D);
             } else {
-                this.pos2 = this.pos2.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+                pos2.add(change.getX(), 0.0D, 0.0D);
             }
 
             if (change.getY() > 0.0D) {
-                if (Math.max(this.pos1.getY(), this.pos2.getY()) == this.pos1.getY()) {
-                    this.pos1 = this.pos1.add(new Vector3D(0.0D, change.getY(), 0.0D));
+                if (Math.max(pos1.getY(), pos2.getY()) == pos1.getY()) {
+                    pos1.add(0.0D, change.getY(), 0.0D);
                 } else {
-                    this.pos2 = this.pos2.add(new Vector3D(0.0D, change.getY(), 0.0D));
+                    pos2.add(0.0D, change.getY(), 0.0D);
                 }
-            } else if (Math.min(this.pos1.getY(), this.pos2.getY()) == this.pos1.getY()) {
-                this.pos1 = this.pos1.add(new Vector3D(0.0D, change.getY(), 0.0D));
+            } else if (Math.min(pos1.getY(), pos2.getY()) == pos1.getY()) {
+                pos1.add(0.0D, change.getY(), 0.0D);
             } else {
-                this.pos2 = this.pos2.add(new Vector3D(0.0D, change.getY(), 0.0D));
+                pos2.add(0.0D, change.getY(), 0.0D);
             }
 
             if (change.getZ() > 0.0D) {
-                if (Math.max(this.pos1.getZ(), this.pos2.getZ()) == this.pos1.getZ()) {
-                    this.pos1 = this.pos1.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+                if (Math.max(pos1.getZ(), pos2.getZ()) == pos1.getZ()) {
+                    pos1.add(0.0D, 0.0D, change.getZ());
                 } else {
-                    this.pos2 = this.pos2.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+                    pos2.add(0.0D, 0.0D, change.getZ());
                 }
-            } else if (Math.min(this.pos1.getZ(), this.pos2.getZ()) == this.pos1.getZ()) {
-                this.pos1 = this.pos1.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+            } else if (Math.min(pos1.getZ(), pos2.getZ()) == pos1.getZ()) {
+                pos1.add(0.0D, 0.0D, change.getZ());
             } else {
-                this.pos2 = this.pos2.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+                pos2.add(0.0D, 0.0D, change.getZ());
             }
         }
 
+        this.pos1 = pos1.toVector();
+        this.pos2 = pos2.toVector();
         this.recalculate();
     }
 
     public void contract(Vector3D... changes) {
         Preconditions.checkNotNull(changes);
 
+        MutableVector3D pos1 = new MutableVector3D(this.pos1);
+        MutableVector3D pos2 = new MutableVector3D(this.pos2);
+
         for (Vector3D change : changes) {
             if (change.getX() < 0.0D) {
-                if (Math.max(this.pos1.getX(), this.pos2.getX()) == this.pos1.getX()) {
-                    this.pos1 = this.pos1.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+                if (Math.max(pos1.getX(), pos2.getX()) == pos1.getX()) {
+                    pos1.add(change.getX(), 0.0D, 0.0D);
                 } else {
-                    this.pos2 = this.pos2.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+                    pos2.add(change.getX(), 0.0D, 0.0D);
                 }
-            } else if (Math.min(this.pos1.getX(), this.pos2.getX()) == this.pos1.getX()) {
-                this.pos1 = this.pos1.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+            } else if (Math.min(pos1.getX(), pos2.getX()) == pos1.getX()) {
+                pos1.add(change.getX(), 0.0D, 0.0D);
             } else {
-                this.pos2 = this.pos2.add(new Vector3D(change.getX(), 0.0D, 0.0D));
+                pos2.add(change.getX(), 0.0D, 0.0D);
             }
 
             if (change.getY() < 0.0D) {
-                if (Math.max(this.pos1.getY(), this.pos2.getY()) == this.pos1.getY()) {
-                    this.pos1 = this.pos1.add(new Vector3D(0.0D, change.getY(), 0.0D));
+                if (Math.max(pos1.getY(), pos2.getY()) == pos1.getY()) {
+                    pos1.add(0.0D, change.getY(), 0.0D);
                 } else {
-                    this.pos2 = this.pos2.add(new Vector3D(0.0D, change.getY(), 0.0D));
+                    pos2.add(0.0D, change.getY(), 0.0D);
                 }
-            } else if (Math.min(this.pos1.getY(), this.pos2.getY()) == this.pos1.getY()) {
-                this.pos1 = this.pos1.add(new Vector3D(0.0D, change.getY(), 0.0D));
+            } else if (Math.min(pos1.getY(), pos2.getY()) == pos1.getY()) {
+                pos1.add(0.0D, change.getY(), 0.0D);
             } else {
-                this.pos2 = this.pos2.add(new Vector3D(0.0D, change.getY(), 0.0D));
+                pos2.add(0.0D, change.getY(), 0.0D);
             }
 
             if (change.getZ() < 0.0D) {
-                if (Math.max(this.pos1.getZ(), this.pos2.getZ()) == this.pos1.getZ()) {
-                    this.pos1 = this.pos1.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+                if (Math.max(pos1.getZ(), pos2.getZ()) == pos1.getZ()) {
+                    pos1.add(0.0D, 0.0D, change.getZ());
                 } else {
-                    this.pos2 = this.pos2.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+                    pos2.add(0.0D, 0.0D, change.getZ());
                 }
-            } else if (Math.min(this.pos1.getZ(), this.pos2.getZ()) == this.pos1.getZ()) {
-                this.pos1 = this.pos1.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+            } else if (Math.min(pos1.getZ(), pos2.getZ()) == pos1.getZ()) {
+                pos1.add(0.0D, 0.0D, change.getZ());
             } else {
-                this.pos2 = this.pos2.add(new Vector3D(0.0D, 0.0D, change.getZ()));
+                pos2.add(0.0D, 0.0D, change.getZ());
             }
         }
 
+        this.pos1 = pos1.toVector();
+        this.pos2 = pos2.toVector();
         this.recalculate();
     }
 
@@ -217,6 +239,7 @@ public class CuboidRegion implements GravSerializable {
             pos1 = pos1.setY(Math.max(y1, min));
             pos2 = pos2.setY(Math.min(y2, max));
         }
+        this.invalidateBounds();
     }
 
     public Set<Vector3D> getChunkCubes() {
@@ -235,6 +258,73 @@ public class CuboidRegion implements GravSerializable {
         return chunks;
     }
 
+    /**
+     * Returns the chunk sections this region intersects, as {@link BlockPos packed} section coordinates.
+     *
+     * @return the packed sections, in the same order as {@link #forEachBlockBySection(SectionVisitor)} visits them
+     */
+    public long[] getChunkCubesPacked() {
+        Vector3D min = this.getMinimumPoint();
+        Vector3D max = this.getMaximumPoint();
+        int minX = min.getBlockX() >> 4;
+        int minY = min.getBlockY() >> 4;
+        int minZ = min.getBlockZ() >> 4;
+        int maxX = max.getBlockX() >> 4;
+        int maxY = max.getBlockY() >> 4;
+        int maxZ = max.getBlockZ() >> 4;
+
+        long[] sections = new long[(maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1)];
+        int i = 0;
+        for (int x = minX; x <= maxX; ++x) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                for (int y = minY; y <= maxY; ++y) {
+                    sections[i++] = BlockPos.pack(x, y, z);
+                }
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Visits the blocks of this region one chunk section at a time, so per-chunk caches stay warm. Sections are
+     * visited chunk column by chunk column, bottom to top, and the visitor is told before entering each one.
+     * Within a section the blocks are visited y, then z, then x fastest, clipped to this region.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachBlockBySection(SectionVisitor visitor) {
+        Vector3D min = this.getMinimumPoint();
+        Vector3D max = this.getMaximumPoint();
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int minZ = min.getBlockZ();
+        int maxX = max.getBlockX();
+        int maxY = max.getBlockY();
+        int maxZ = max.getBlockZ();
+
+        for (int sectionX = minX >> 4; sectionX <= maxX >> 4; sectionX++) {
+            int fromX = Math.max(minX, sectionX << 4);
+            int toX = Math.min(maxX, (sectionX << 4) + 15);
+            for (int sectionZ = minZ >> 4; sectionZ <= maxZ >> 4; sectionZ++) {
+                int fromZ = Math.max(minZ, sectionZ << 4);
+                int toZ = Math.min(maxZ, (sectionZ << 4) + 15);
+                for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+                    int fromY = Math.max(minY, sectionY << 4);
+                    int toY = Math.min(maxY, (sectionY << 4) + 15);
+
+                    visitor.enterSection(sectionX, sectionY, sectionZ);
+                    for (int y = fromY; y <= toY; y++) {
+                        for (int z = fromZ; z <= toZ; z++) {
+                            for (int x = fromX; x <= toX; x++) {
+                                visitor.accept(x, y, z);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     public double smallestDistance(Vector3D point) {
         return point.distance(point.clamp(this.getMinimumPoint(), this.getMaximumPoint()));
     }
@@ -254,16 +344,26 @@ public class CuboidRegion implements GravSerializable {
 
     public Iterator<Vector3D> iterator() {
         return new Iterator<Vector3D>() {
-            private final Vector3D min = CuboidRegion.this.getMinimumPoint();
-            private final Vector3D max = CuboidRegion.this.getMaximumPoint();
+            private final int minX;
+            private final int minY;
+            private final int maxX;
+            private final int maxY;
+            private final int maxZ;
             private int nextX;
             private int nextY;
             private int nextZ;
 
             {
-                this.nextX = this.min.getBlockX();
-                this.nextY = this.min.getBlockY();
-                this.nextZ = this.min.getBlockZ();
+                Vector3D min = CuboidRegion.this.getMinimumPoint();
+                Vector3D max = CuboidRegion.this.getMaximumPoint();
+                this.minX = min.getBlockX();
+                this.minY = min.getBlockY();
+                this.maxX = max.getBlockX();
+                this.maxY = max.getBlockY();
+                this.maxZ = max.getBlockZ();
+                this.nextX = this.minX;
+                this.nextY = this.minY;
+                this.nextZ = min.getBlockZ();
             }
 
             public boolean hasNext() {
@@ -275,11 +375,11 @@ public class CuboidRegion implements GravSerializable {
                     throw new NoSuchElementException();
                 } else {
                     Vector3D answer = new Vector3D(this.nextX, this.nextY, this.nextZ);
-                    if (++this.nextX > this.max.getBlockX()) {
-                        this.nextX = this.min.getBlockX();
-                        if (++this.nextY > this.max.getBlockY()) {
-                            this.nextY = this.min.getBlockY();
-                            if (++this.nextZ > this.max.getBlockZ()) {
+                    if (++this.nextX > this.maxX) {
+                        this.nextX = this.minX;
+                        if (++this.nextY > this.maxY) {
+                            this.nextY = this.minY;
+                            if (++this.nextZ > this.maxZ) {
                                 this.nextX = -2147483648;
                             }
                         }
@@ -295,6 +395,107 @@ public class CuboidRegion implements GravSerializable {
         };
     }
 
+    /**
+     * Returns a spliterator over the blocks of this region, see {@link #parallelBlocks()}.
+     *
+     * @return the spliterator
+     */
+    public Spliterator<Vector3D> spliterator() {
+        return blockStream(false).spliterator();
+    }
+
+    /**
+     * Returns a parallel stream of the blocks of this region. The region is split along its longest axis, on
+     * chunk section boundaries where possible. Like any parallel stream it runs in the common
+     * {@link java.util.concurrent.ForkJoinPool}, or in the pool the terminal operation is submitted to.
+     *
+     * @return the stream
+     */
+    public Stream<Vector3D> parallelBlocks() {
+        return blockStream(true);
+    }
+
+    private Stream<Vector3D> blockStream(boolean parallel) {
+        return packedBlocks(parallel).mapToObj(BlockPos::toVector);
+    }
+
+    /**
+     * Returns a spliterator over the {@link BlockPos packed} positions of the blocks in this region.
+     *
+     * @return the spliterator
+     */
+    public Spliterator.OfLong packedSpliterator() {
+        return new BlockSpliterator(this);
+    }
+
+    /**
+     * Returns a stream of the {@link BlockPos packed} positions of the blocks in this region, without creating an
+     * object per block.
+     *
+     * @param parallel whether the stream is parallel, see {@link #parallelBlocks()}
+     * @return the stream
+     */
+    public LongStream packedBlocks(boolean parallel) {
+        return StreamSupport.longStream(packedSpliterator(), parallel);
+    }
+
+    /**
+     * Returns an allocation-free cursor over the blocks of this region, in the same order as {@link #iterator()}.
+     *
+     * @return the cursor
+     */
+    public BlockCursor cursor() {
+        return new BlockCursor(this);
+    }
+
+    /**
+     * Calls the consumer with the coordinates of every block in this region, in the same order as {@link #iterator()}.
+     *
+     * @param consumer the consumer
+     */
+    public void forEachBlock(IntTriConsumer consumer) {
+        Vector3D min = this.getMinimumPoint();
+        Vector3D max = this.getMaximumPoint();
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int maxX = max.getBlockX();
+        int maxY = max.getBlockY();
+        int maxZ = max.getBlockZ();
+        for (int z = min.getBlockZ(); z <= maxZ; z++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    consumer.accept(x, y, z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the blocks of this region in the same order as {@link #iterator()}, stopping at the first match.
+     *
+     * @param predicate the predicate
+     * @return whether any block matched
+     */
+    public boolean anyBlock(IntTriPredicate predicate) {
+        Vector3D min = this.getMinimumPoint();
+        Vector3D max = this.getMaximumPoint();
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int maxX = max.getBlockX();
+        int maxY = max.getBlockY();
+        int maxZ = max.getBlockZ();
+        for (int z = min.getBlockZ(); z <= maxZ; z++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (predicate.test(x, y, z)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     public String toString() {
         return this.getMinimumPoint() + " - " + this.getMaximumPoint();
     }
@@ -321,18 +522,20 @@ public class CuboidRegion implements GravSerializable {
     }
 
     private boolean intersects(Vector3D origin, Vector3D direction, Consumer<Vector3D> point1Consumer, Consumer<Vector3D> point2Consumer) {
-        direction = direction.normalize();
-        Vector3D invDir = new Vector3D(1 / direction.x, 1 / direction.y, 1 / direction.z);
+        double length = direction.length();
+        double dirX = direction.x / length;
+        double dirY = direction.y / length;
+        double dirZ = direction.z / length;
 
         Vector3D minimumPoint = getMinimumPoint();
         Vector3D maximumPoint = getMaximumPoint();
 
-        double t1 = (minimumPoint.x - origin.x) * invDir.x;
-        double t2 = (maximumPoint.x - origin.x) * invDir.x;
-        double t3 = (minimumPoint.y - origin.y) * invDir.y;
-        double t4 = (maximumPoint.y - origin.y) * invDir.y;
-        double t5 = (minimumPoint.z - origin.z) * invDir.z;
-        double t6 = (maximumPoint.z - origin.z) * invDir.z;
+        double t1 = (minimumPoint.x - origin.x) / dirX;
+        double t2 = (maximumPoint.x - origin.x) / dirX;
+        double t3 = (minimumPoint.y - origin.y) / dirY;
+        double t4 = (maximumPoint.y - origin.y) / dirY;
+        double t5 = (minimumPoint.z - origin.z) / dirZ;
+        double t6 = (maximumPoint.z - origin.z) / dirZ;
 
         double tmin = Math.max(Math.max(Math.min(t1, t2), Math.min(t3, t4)), Math.min(t5, t6));
         double tmax = Math.min(Math.min(Math.max(t1, t2), Math.max(t3, t4)), Math.max(t5, t6));
@@ -345,15 +548,12 @@ public class CuboidRegion implements GravSerializable {
             return false;
         }
 
-        Vector3D point1 = origin.add(direction.multiply(tmin));
-        Vector3D point2 = origin.add(direction.multiply(tmax));
-
         if (point1Consumer != null) {
-            point1Consumer.accept(point1);
+            point1Consumer.accept(origin.add(dirX * tmin, dirY * tmin, dirZ * tmin));
         }
 
         if (point2Consumer != null) {
-            point2Consumer.accept(point2);
+            point2Consumer.accept(origin.add(dirX * tmax, dirY * tmax, dirZ * tmax));
         }
 
         return true;
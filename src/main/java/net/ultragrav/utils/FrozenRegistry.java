@@ -0,0 +1,349 @@
+package net.ultragrav.utils;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of a {@link Registry}, created by {@link Registry#freeze()}.
+ * <p>
+ * Identifiers are looked up through a perfect hash (hash and displace), so a lookup is two array loads and one
+ * {@code equals} call. Ids are looked up in an array and objects by identity in an open addressing table. None of
+ * the tables box or lock, which makes this both faster and smaller than the maps of a live registry: a registry that
+ * will not change anymore can be dropped in favour of its frozen snapshot.
+ * <p>
+ * Unlike {@link Registry}, objects are looked up by identity, not by {@code equals}.
+ *
+ * @param <I> Type of identifier
+ * @param <T> Type of object
+ */
+public final class FrozenRegistry<I, T> {
+    /**
+     * Returned by the id lookups when there is no such identifier or object.
+     */
+    public static final int NO_ID = Integer.MIN_VALUE;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int MAX_DISPLACEMENT_TRIES = 1 << 20;
+    private static final int MAX_SPARSE_IDS = 64;
+
+    // Perfect hash, an identifier hashes to a bucket and the bucket's displacement picks its slot
+    private final int[] displacements;
+    private final Object[] slotIdentifiers;
+    private final Object[] slotObjects;
+    private final int[] slotIds;
+    /**
+     * Identifier to slot, only used if no perfect hash could be built (identifiers with equal hash codes).
+     */
+    private final Map<I, Integer> fallbackSlots;
+
+    private final Object[] idToObject;
+    /**
+     * Id to object, only used if the ids are too sparse or negative for {@link #idToObject}.
+     */
+    private final Map<Integer, T> fallbackIds;
+
+    private final Object[] identityKeys;
+    private final int[] identitySlots;
+
+    private final Map<Integer, I> palette;
+    private final Collection<T> values;
+
+    FrozenRegistry(Map<I, T> identifierToObject, Map<Integer, T> idToObject, Map<T, Integer> objectToId, Map<T, I> objectToIdentifier) {
+        int size = identifierToObject.size();
+        List<I> identifiers = new ArrayList<>(identifierToObject.keySet());
+
+        int slots = Math.max(1, size + (size >> 2));
+        int[] slotOf = new int[size];
+        int[] displacements = buildPerfectHash(identifiers, slots, slotOf);
+        Map<I, Integer> fallbackSlots = null;
+        if (displacements == null) {
+            slots = Math.max(1, size);
+            displacements = new int[0];
+            fallbackSlots = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                slotOf[i] = i;
+                fallbackSlots.put(identifiers.get(i), i);
+            }
+        }
+        this.displacements = displacements;
+        this.fallbackSlots = fallbackSlots;
+
+        this.slotIdentifiers = new Object[slots];
+        this.slotObjects = new Object[slots];
+        this.slotIds = new int[slots];
+        Arrays.fill(slotIds, NO_ID);
+        for (int i = 0; i < size; i++) {
+            I identifier = identifiers.get(i);
+            T object = identifierToObject.get(identifier);
+            Integer id = objectToId.get(object);
+            slotIdentifiers[slotOf[i]] = identifier;
+            slotObjects[slotOf[i]] = object;
+            slotIds[slotOf[i]] = id == null ? NO_ID : id;
+        }
+
+        int maxId = -1;
+        boolean negative = false;
+        for (Integer id : idToObject.keySet()) {
+            maxId = Math.max(maxId, id);
+            negative |= id < 0;
+        }
+        if (!negative && maxId < size * 4L + MAX_SPARSE_IDS) {
+            this.idToObject = new Object[maxId + 1];
+            idToObject.forEach((id, object) -> this.idToObject[id] = object);
+            this.fallbackIds = null;
+        } else {
+            this.idToObject = new Object[0];
+            this.fallbackIds = new HashMap<>(idToObject);
+        }
+
+        int identitySize = Integer.highestOneBit(Math.max(1, objectToIdentifier.size()) * 2 - 1) << 1;
+        this.identityKeys = new Object[identitySize];
+        this.identitySlots = new int[identitySize];
+        objectToIdentifier.forEach((object, identifier) -> {
+            int slot = slotOf(identifier);
+            if (slot == -1) {
+                return;
+            }
+            int mask = identityKeys.length - 1;
+            int index = identityIndex(object, mask);
+            while (identityKeys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            identityKeys[index] = object;
+            identitySlots[index] = slot;
+        });
+
+        Map<Integer, I> palette = new HashMap<>();
+        idToObject.forEach((id, object) -> palette.put(id, objectToIdentifier.get(object)));
+        this.palette = Collections.unmodifiableMap(palette);
+        this.values = Collections.unmodifiableCollection(new ArrayList<>(idToObject.values()));
+    }
+
+    /**
+     * Finds a displacement per bucket so that every identifier lands in its own slot.
+     *
+     * @return the displacements, or null if there are identifiers with equal hash codes or no displacement was found
+     */
+    private static int[] buildPerfectHash(List<?> identifiers, int slots, int[] slotOf) {
+        int size = identifiers.size();
+        int[] hashes = new int[size];
+        Set<Integer> distinct = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            hashes[i] = identifiers.get(i).hashCode();
+            if (!distinct.add(hashes[i])) {
+                return null;
+            }
+        }
+
+        int bucketCount = Math.max(1, size / BUCKET_SIZE);
+        List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            buckets.get(bucket(hashes[i], bucketCount)).add(i);
+        }
+        Integer[] order = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            order[i] = i;
+        }
+        // Place the largest buckets first, while most slots are still free
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        int[] displacements = new int[bucketCount];
+        boolean[] taken = new boolean[slots];
+        int[] candidate = new int[BUCKET_SIZE * 4];
+        for (int bucket : order) {
+            List<Integer> members = buckets.get(bucket);
+            if (members.isEmpty()) {
+                break;
+            }
+            if (candidate.length < members.size()) {
+                candidate = new int[members.size()];
+            }
+            int displacement = 0;
+            search:
+            for (; ; displacement++) {
+                if (displacement == MAX_DISPLACEMENT_TRIES) {
+                    return null;
+                }
+                for (int i = 0; i < members.size(); i++) {
+                    int slot = slot(hashes[members.get(i)], displacement, slots);
+                    if (taken[slot]) {
+                        continue search;
+                    }
+                    for (int j = 0; j < i; j++) {
+                        if (candidate[j] == slot) {
+                            continue search;
+                        }
+                    }
+                    candidate[i] = slot;
+                }
+                break;
+            }
+            displacements[bucket] = displacement;
+            for (int i = 0; i < members.size(); i++) {
+                taken[candidate[i]] = true;
+                slotOf[members.get(i)] = candidate[i];
+            }
+        }
+        return displacements;
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        x *= 0xC4CEB9FE1A85EC53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    private static int bucket(int hash, int bucketCount) {
+        return (int) ((mix(hash) >>> 1) % bucketCount);
+    }
+
+    private static int slot(int hash, int displacement, int slots) {
+        return (int) ((mix((hash & 0xFFFFFFFFL) ^ ((long) displacement << 32)) >>> 1) % slots);
+    }
+
+    private static int identityIndex(Object object, int mask) {
+        int hash = System.identityHashCode(object);
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9 >>> 7 & mask;
+    }
+
+    private int slotOf(Object identifier) {
+        if (identifier == null) {
+            return -1;
+        }
+        int slot;
+        if (fallbackSlots != null) {
+            Integer fallback = fallbackSlots.get(identifier);
+            if (fallback == null) {
+                return -1;
+            }
+            slot = fallback;
+        } else {
+            int hash = identifier.hashCode();
+            slot = slot(hash, displacements[bucket(hash, displacements.length)], slotIdentifiers.length);
+        }
+        return identifier.equals(slotIdentifiers[slot]) ? slot : -1;
+    }
+
+    private int identitySlotOf(Object object) {
+        if (object == null) {
+            return -1;
+        }
+        int mask = identityKeys.length - 1;
+        int index = identityIndex(object, mask);
+        Object key;
+        while ((key = identityKeys[index]) != null) {
+            if (key == object) {
+                return identitySlots[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the object with the given identifier.
+     *
+     * @param identifier the identifier
+     * @return the object, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(I identifier) {
+        int slot = slotOf(identifier);
+        return slot == -1 ? null : (T) slotObjects[slot];
+    }
+
+    /**
+     * Returns the object with the given id.
+     *
+     * @param id the id of the object to return
+     * @return the object, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        if (fallbackIds != null) {
+            return fallbackIds.get(id);
+        }
+        return id >= 0 && id < idToObject.length ? (T) idToObject[id] : null;
+    }
+
+    /**
+     * Returns the identifier for the given object.
+     *
+     * @param object the object to return the identifier for
+     * @return the identifier, or null if the object is not registered
+     */
+    @SuppressWarnings("unchecked")
+    public I getIdentifier(T object) {
+        int slot = identitySlotOf(object);
+        return slot == -1 ? null : (I) slotIdentifiers[slot];
+    }
+
+    /**
+     * Returns the id for the given identifier.
+     *
+     * @param identifier the identifier to return the id for
+     * @return the id, or {@link #NO_ID} if there is none
+     */
+    public int getIdByIdentifier(I identifier) {
+        int slot = slotOf(identifier);
+        return slot == -1 ? NO_ID : slotIds[slot];
+    }
+
+    /**
+     * Returns the id of the given object.
+     *
+     * @param object the object to return the id for
+     * @return the id, or {@link #NO_ID} if the object is not registered
+     */
+    public int getId(T object) {
+        int slot = identitySlotOf(object);
+        return slot == -1 ? NO_ID : slotIds[slot];
+    }
+
+    /**
+     * Returns a map of all ids to identifiers, which cannot be modified.
+     *
+     * @return a map of all ids to identifiers
+     */
+    public Map<Integer, I> getPalette() {
+        return palette;
+    }
+
+    /**
+     * Returns a collection of all objects.
+     *
+     * @return a collection of all objects
+     */
+    public Collection<T> values() {
+        return values;
+    }
+
+    /**
+     * Returns a map of all identifiers to objects.
+     *
+     * @return a new map of all identifiers to objects
+     */
+    @SuppressWarnings("unchecked")
+    public Map<I, T> asMap() {
+        Map<I, T> map = new HashMap<>();
+        for (int i = 0; i < slotIdentifiers.length; i++) {
+            if (slotIdentifiers[i] != null) {
+                map.put((I) slotIdentifiers[i], (T) slotObjects[i]);
+            }
+        }
+        return map;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+}
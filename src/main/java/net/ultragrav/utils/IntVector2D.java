@@ -12,8 +12,18 @@ import java.util.Objects;
 public class IntVector2D implements GravSerializable {
     public static final IntVector2D ONE = new IntVector2D(1, 1);
     public static final Object ZERO = new IntVector2D(0, 0);
-    private int x;
-    private int y;
+
+    /**
+     * Range of components cached by {@link #of(int, int)}, configured with the same system properties as
+     * {@link IntVector3D#CACHE_MIN} and {@link IntVector3D#CACHE_MAX}.
+     */
+    public static final int CACHE_MIN = IntVector3D.CACHE_MIN;
+    public static final int CACHE_MAX = IntVector3D.CACHE_MAX;
+    private static final int CACHE_SIZE = CACHE_MAX - CACHE_MIN + 1;
+    private static final IntVector2D[] CACHE = new IntVector2D[CACHE_SIZE * CACHE_SIZE];
+
+    private final int x;
+    private final int y;
 
     public IntVector2D(int x, int y) {
         this.x = x;
@@ -25,6 +35,24 @@ public class IntVector2D implements GravSerializable {
         this.y = serializer.readInt();
     }
 
+    /**
+     * Returns a vector with the given components, a shared instance if both components are within
+     * [{@link #CACHE_MIN}, {@link #CACHE_MAX}].
+     */
+    public static IntVector2D of(int x, int y) {
+        int ix = x - CACHE_MIN;
+        int iy = y - CACHE_MIN;
+        if ((ix | iy | (CACHE_SIZE - 1 - ix) | (CACHE_SIZE - 1 - iy)) < 0) {
+            return new IntVector2D(x, y);
+        }
+        int index = iy * CACHE_SIZE + ix;
+        IntVector2D vector = CACHE[index];
+        if (vector == null) {
+            CACHE[index] = vector = new IntVector2D(x, y);
+        }
+        return vector;
+    }
+
     public IntVector2D add(IntVector2D location) {
         return new IntVector2D(this.x + location.x, this.y + location.y);
     }
@@ -16,6 +16,27 @@ public class IntVector3D implements GravSerializable {
     public static final IntVector3D UNIT_Y = new IntVector3D(0, 1, 0);
     public static final IntVector3D UNIT_Z = new IntVector3D(0, 0, 1);
     public static final IntVector3D ONE = new IntVector3D(1, 1, 1);
+
+    /**
+     * Largest number of cached values per axis, the 3D cache holds its cube (2M entries).
+     */
+    public static final int MAX_CACHE_SIZE = 128;
+    /**
+     * Range of components cached by {@link #of(int, int, int)}, configured with the
+     * {@code ultragrav.intvector.cacheMin} and {@code ultragrav.intvector.cacheMax} system properties. The range is
+     * cut off at {@link #MAX_CACHE_SIZE} values, and the minimum is kept within [-2^30, 2^30].
+     */
+    public static final int CACHE_MIN = Math.max(-(1 << 30), Math.min(1 << 30,
+            Integer.getInteger("ultragrav.intvector.cacheMin", -16)));
+    public static final int CACHE_MAX = Math.max(CACHE_MIN - 1, Math.min(CACHE_MIN + MAX_CACHE_SIZE - 1,
+            Integer.getInteger("ultragrav.intvector.cacheMax", 31)));
+    private static final int CACHE_SIZE = CACHE_MAX - CACHE_MIN + 1;
+    /**
+     * Filled lazily, indexed x fastest, then y, then z. Racing threads may both create an instance, which is
+     * harmless as vectors are immutable.
+     */
+    private static final IntVector3D[] CACHE = new IntVector3D[CACHE_SIZE * CACHE_SIZE * CACHE_SIZE];
+
     protected final int x;
     protected final int y;
     protected final int z;
@@ -34,10 +55,43 @@ public class IntVector3D implements GravSerializable {
         this(serializer.readInt(), serializer.readInt(), serializer.readInt());
     }
 
+    /**
+     * Returns a vector with the given components, a shared instance if every component is within
+     * [{@link #CACHE_MIN}, {@link #CACHE_MAX}].
+     */
+    public static IntVector3D of(int x, int y, int z) {
+        int ix = x - CACHE_MIN;
+        int iy = y - CACHE_MIN;
+        int iz = z - CACHE_MIN;
+        if ((ix | iy | iz | (CACHE_SIZE - 1 - ix) | (CACHE_SIZE - 1 - iy) | (CACHE_SIZE - 1 - iz)) < 0) {
+            return new IntVector3D(x, y, z);
+        }
+        int index = (iz * CACHE_SIZE + iy) * CACHE_SIZE + ix;
+        IntVector3D vector = CACHE[index];
+        if (vector == null) {
+            CACHE[index] = vector = new IntVector3D(x, y, z);
+        }
+        return vector;
+    }
+
     public static IntVector3D fromBukkitVector(org.bukkit.util.Vector vec) {
         return new IntVector3D(vec.getBlockX(), vec.getBlockY(), vec.getBlockZ());
     }
 
+    /**
+     * Unpacks a position packed by {@link #pack()}, see {@link BlockPos}.
+     */
+    public static IntVector3D fromPacked(long packed) {
+        return BlockPos.unpack(packed);
+    }
+
+    /**
+     * Decodes a key created by {@link #toMorton()}, see {@link Morton}.
+     */
+    public static IntVector3D fromMorton(long key) {
+        return Morton.decode(key);
+    }
+
     public static IntVector3D getMinimum(IntVector3D v1, IntVector3D v2) {
         return new IntVector3D(Math.min(v1.x, v2.x), Math.min(v1.y, v2.y), Math.min(v1.z, v2.z));
     }
@@ -317,6 +371,24 @@ public class IntVector3D implements GravSerializable {
         return new Vector3D(getX(), getY(), getZ());
     }
 
+    /**
+     * Packs this vector into a single long, see {@link BlockPos}.
+     */
+    public long pack() {
+        return BlockPos.pack(this.x, this.y, this.z);
+    }
+
+    /**
+     * Returns the Z-order key of this vector, see {@link Morton}.
+     */
+    public long toMorton() {
+        return Morton.encode(this.x, this.y, this.z);
+    }
+
+    public MutableIntVector3D toMutable() {
+        return new MutableIntVector3D(this);
+    }
+
     @Override
     public void serialize(GravSerializer serializer) {
         serializer.writeInt(this.x);
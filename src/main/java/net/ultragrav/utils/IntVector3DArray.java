@@ -0,0 +1,325 @@
+package net.ultragrav.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Growable array of integer vectors stored as three parallel {@code int[]} columns. Batch operations run in
+ * place as plain counted loops over the columns, which the JIT can vectorize, instead of creating a new list of
+ * new {@link IntVector3D}s per transform.
+ * <p>
+ * Not thread-safe.
+ */
+public class IntVector3DArray {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private int size;
+
+    public IntVector3DArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntVector3DArray(int capacity) {
+        this.xs = new int[capacity];
+        this.ys = new int[capacity];
+        this.zs = new int[capacity];
+    }
+
+    public IntVector3DArray(Collection<IntVector3D> vectors) {
+        this(vectors.size());
+        for (IntVector3D vector : vectors) {
+            add(vector);
+        }
+    }
+
+    /**
+     * Creates an array holding the given {@link BlockPos packed} positions.
+     */
+    public static IntVector3DArray fromPacked(long[] packed) {
+        IntVector3DArray array = new IntVector3DArray(packed.length);
+        for (int i = 0; i < packed.length; i++) {
+            array.xs[i] = BlockPos.unpackX(packed[i]);
+            array.ys[i] = BlockPos.unpackY(packed[i]);
+            array.zs[i] = BlockPos.unpackZ(packed[i]);
+        }
+        array.size = packed.length;
+        return array;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = Math.max(capacity, xs.length + (xs.length >> 1) + 1);
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+            zs = Arrays.copyOf(zs, newCapacity);
+        }
+    }
+
+    public void add(int x, int y, int z) {
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        size++;
+    }
+
+    public void add(IntVector3D vector) {
+        add(vector.x, vector.y, vector.z);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    public int getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public int getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    public int getZ(int index) {
+        checkIndex(index);
+        return zs[index];
+    }
+
+    public IntVector3D get(int index) {
+        checkIndex(index);
+        return new IntVector3D(xs[index], ys[index], zs[index]);
+    }
+
+    public void set(int index, int x, int y, int z) {
+        checkIndex(index);
+        xs[index] = x;
+        ys[index] = y;
+        zs[index] = z;
+    }
+
+    public void set(int index, IntVector3D vector) {
+        set(index, vector.x, vector.y, vector.z);
+    }
+
+    /**
+     * Adds the offset to every vector.
+     */
+    public IntVector3DArray translate(int x, int y, int z) {
+        int[] xs = this.xs;
+        int[] ys = this.ys;
+        int[] zs = this.zs;
+        int size = this.size;
+        for (int i = 0; i < size; i++) {
+            xs[i] += x;
+        }
+        for (int i = 0; i < size; i++) {
+            ys[i] += y;
+        }
+        for (int i = 0; i < size; i++) {
+            zs[i] += z;
+        }
+        return this;
+    }
+
+    public IntVector3DArray translate(IntVector3D offset) {
+        return translate(offset.x, offset.y, offset.z);
+    }
+
+    /**
+     * Adds the vectors of the other array element-wise.
+     */
+    public IntVector3DArray add(IntVector3DArray other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Sizes differ: " + size + " and " + other.size);
+        }
+        addColumn(xs, other.xs, size);
+        addColumn(ys, other.ys, size);
+        addColumn(zs, other.zs, size);
+        return this;
+    }
+
+    private static void addColumn(int[] target, int[] source, int size) {
+        for (int i = 0; i < size; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    public IntVector3DArray scale(int x, int y, int z) {
+        int[] xs = this.xs;
+        int[] ys = this.ys;
+        int[] zs = this.zs;
+        int size = this.size;
+        for (int i = 0; i < size; i++) {
+            xs[i] *= x;
+        }
+        for (int i = 0; i < size; i++) {
+            ys[i] *= y;
+        }
+        for (int i = 0; i < size; i++) {
+            zs[i] *= z;
+        }
+        return this;
+    }
+
+    public IntVector3DArray scale(int n) {
+        return scale(n, n, n);
+    }
+
+    public IntVector3DArray clamp(IntVector3D min, IntVector3D max) {
+        clampColumn(xs, size, min.x, max.x);
+        clampColumn(ys, size, min.y, max.y);
+        clampColumn(zs, size, min.z, max.z);
+        return this;
+    }
+
+    private static void clampColumn(int[] column, int size, int min, int max) {
+        for (int i = 0; i < size; i++) {
+            column[i] = Math.min(Math.max(column[i], min), max);
+        }
+    }
+
+    /**
+     * Computes the squared distance of every vector to the point.
+     *
+     * @param point the point
+     * @param out   the array to write to, a new one is created if it is null or too small
+     * @return the array holding the distances
+     */
+    public double[] distanceSq(IntVector3D point, double[] out) {
+        if (out == null || out.length < size) {
+            out = new double[size];
+        }
+        int[] xs = this.xs;
+        int[] ys = this.ys;
+        int[] zs = this.zs;
+        double px = point.x;
+        double py = point.y;
+        double pz = point.z;
+        for (int i = 0; i < size; i++) {
+            double dx = xs[i] - px;
+            double dy = ys[i] - py;
+            double dz = zs[i] - pz;
+            out[i] = dx * dx + dy * dy + dz * dz;
+        }
+        return out;
+    }
+
+    /**
+     * Returns the component-wise minimum of all vectors, or null if this array is empty.
+     */
+    public IntVector3D getMinimum() {
+        if (size == 0) {
+            return null;
+        }
+        return new IntVector3D(min(xs, size), min(ys, size), min(zs, size));
+    }
+
+    /**
+     * Returns the component-wise maximum of all vectors, or null if this array is empty.
+     */
+    public IntVector3D getMaximum() {
+        if (size == 0) {
+            return null;
+        }
+        return new IntVector3D(max(xs, size), max(ys, size), max(zs, size));
+    }
+
+    private static int min(int[] column, int size) {
+        int min = column[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    private static int max(int[] column, int size) {
+        int max = column[0];
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Applies {@link IntVector3D#transform2D(double, double, double, double, double)} to every vector.
+     */
+    public IntVector3DArray transform2D(double angle, double aboutX, double aboutZ, double translateX, double translateZ) {
+        angle = Math.toRadians(angle);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        int[] xs = this.xs;
+        int[] zs = this.zs;
+        for (int i = 0; i < size; i++) {
+            double x = xs[i] - aboutX;
+            double z = zs[i] - aboutZ;
+            xs[i] = (int) (x * cos - z * sin + aboutX + translateX);
+            zs[i] = (int) (x * sin + z * cos + aboutZ + translateZ);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the vectors as {@link BlockPos packed} positions.
+     */
+    public long[] toPacked() {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            packed[i] = BlockPos.pack(xs[i], ys[i], zs[i]);
+        }
+        return packed;
+    }
+
+    public IntVector3DArray copy() {
+        IntVector3DArray copy = new IntVector3DArray(size);
+        System.arraycopy(xs, 0, copy.xs, 0, size);
+        System.arraycopy(ys, 0, copy.ys, 0, size);
+        System.arraycopy(zs, 0, copy.zs, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Returns a list view of this array, {@link List#get(int)} creates an {@link IntVector3D} for the element and
+     * {@link List#set(int, Object)} writes through.
+     */
+    public List<IntVector3D> asList() {
+        return new AbstractList<IntVector3D>() {
+            @Override
+            public IntVector3D get(int index) {
+                return IntVector3DArray.this.get(index);
+            }
+
+            @Override
+            public IntVector3D set(int index, IntVector3D element) {
+                IntVector3D previous = IntVector3DArray.this.get(index);
+                IntVector3DArray.this.set(index, element);
+                return previous;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package net.ultragrav.utils;
+
+/**
+ * Static helpers for Morton (Z-order) keys, which interleave the bits of x, y and z so that positions close to each
+ * other usually have close keys. Sorting by Morton key gives much better locality than sorting by x, then y, then z.
+ * <p>
+ * Every component uses 21 bits, biased by 2^20, which gives a range of [-1048576, 1048575]. Keys are never
+ * negative, so they sort the same signed and unsigned. Bit {@code 3 * i} holds bit {@code i} of x, bit
+ * {@code 3 * i + 1} that of y and bit {@code 3 * i + 2} that of z.
+ */
+public final class Morton {
+    public static final int BITS = 21;
+    public static final int MIN = -(1 << (BITS - 1));
+    public static final int MAX = (1 << (BITS - 1)) - 1;
+
+    /**
+     * Bits of the x component of a key, shift left by 1 for y and by 2 for z.
+     */
+    public static final long X_MASK = 0x1249249249249249L;
+    public static final long Y_MASK = X_MASK << 1;
+    public static final long Z_MASK = X_MASK << 2;
+
+    private static final int BIAS = 1 << (BITS - 1);
+
+    private Morton() {
+    }
+
+    /**
+     * @return whether every component is within [{@link #MIN}, {@link #MAX}]
+     */
+    public static boolean fits(int x, int y, int z) {
+        return x >= MIN && x <= MAX && y >= MIN && y <= MAX && z >= MIN && z <= MAX;
+    }
+
+    /**
+     * Encodes the components, which must be within [{@link #MIN}, {@link #MAX}] (see {@link #fits(int, int, int)}),
+     * other values wrap around.
+     */
+    public static long encode(int x, int y, int z) {
+        return spread(x + BIAS) | (spread(y + BIAS) << 1) | (spread(z + BIAS) << 2);
+    }
+
+    public static long encode(IntVector3D position) {
+        return encode(position.x, position.y, position.z);
+    }
+
+    public static int decodeX(long key) {
+        return compact(key) - BIAS;
+    }
+
+    public static int decodeY(long key) {
+        return compact(key >>> 1) - BIAS;
+    }
+
+    public static int decodeZ(long key) {
+        return compact(key >>> 2) - BIAS;
+    }
+
+    public static IntVector3D decode(long key) {
+        return new IntVector3D(decodeX(key), decodeY(key), decodeZ(key));
+    }
+
+    /**
+     * @return whether the key lies in the box spanned by the keys of its minimum and maximum corner
+     */
+    public static boolean inBox(long key, long min, long max) {
+        // Masked keys compare like the components they hold
+        long x = key & X_MASK;
+        long y = key & Y_MASK;
+        long z = key & Z_MASK;
+        return x >= (min & X_MASK) && x <= (max & X_MASK)
+                && y >= (min & Y_MASK) && y <= (max & Y_MASK)
+                && z >= (min & Z_MASK) && z <= (max & Z_MASK);
+    }
+
+    /**
+     * Returns the smallest key larger than the given key that lies in the box (BIGMIN, Tropf and Herzog). The key
+     * must be between min and max, but outside the box.
+     *
+     * @param key the key
+     * @param min the key of the minimum corner of the box
+     * @param max the key of the maximum corner of the box
+     * @return the next key in the box
+     */
+    public static long nextInBox(long key, long min, long max) {
+        long bigMin = max;
+        for (int bit = 3 * BITS - 1; bit >= 0; bit--) {
+            long mask = 1L << bit;
+            long lower = (X_MASK << (bit % 3)) & (mask - 1);
+            boolean keyBit = (key & mask) != 0;
+            boolean minBit = (min & mask) != 0;
+            boolean maxBit = (max & mask) != 0;
+            if (!keyBit) {
+                if (!minBit && maxBit) {
+                    bigMin = (min | mask) & ~lower;
+                    max = (max & ~mask) | lower;
+                } else if (minBit) {
+                    return min;
+                }
+            } else {
+                if (!maxBit) {
+                    return bigMin;
+                } else if (!minBit) {
+                    min = (min | mask) & ~lower;
+                }
+            }
+        }
+        return bigMin;
+    }
+
+    private static long spread(int value) {
+        long x = value & 0x1FFFFFL;
+        x = (x | x << 32) & 0x1F00000000FFFFL;
+        x = (x | x << 16) & 0x1F0000FF0000FFL;
+        x = (x | x << 8) & 0x100F00F00F00F00FL;
+        x = (x | x << 4) & 0x10C30C30C30C30C3L;
+        x = (x | x << 2) & X_MASK;
+        return x;
+    }
+
+    private static int compact(long key) {
+        long x = key & X_MASK;
+        x = (x ^ (x >>> 2)) & 0x10C30C30C30C30C3L;
+        x = (x ^ (x >>> 4)) & 0x100F00F00F00F00FL;
+        x = (x ^ (x >>> 8)) & 0x1F0000FF0000FFL;
+        x = (x ^ (x >>> 16)) & 0x1F00000000FFFFL;
+        x = (x ^ (x >>> 32)) & 0x1FFFFFL;
+        return (int) x;
+    }
+}
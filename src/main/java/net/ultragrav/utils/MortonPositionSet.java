@@ -0,0 +1,234 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.utils.function.IntTriConsumer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of block positions kept as a sorted array of {@link Morton} keys, so iteration visits positions in Z-order
+ * and box queries only touch the runs of keys that lie in the box, skipping the rest with a binary search.
+ * <p>
+ * Single adds and removes shift the array, use {@link #addAll(Collection)} to add many positions at once.
+ * <p>
+ * Not thread-safe.
+ */
+public class MortonPositionSet {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int size;
+
+    public MortonPositionSet() {
+        this.keys = new long[MIN_CAPACITY];
+    }
+
+    public MortonPositionSet(Collection<IntVector3D> positions) {
+        this.keys = new long[Math.max(MIN_CAPACITY, positions.size())];
+        addAll(positions);
+    }
+
+    private static long key(int x, int y, int z) {
+        if (!Morton.fits(x, y, z)) {
+            throw new IllegalArgumentException("Position " + x + ", " + y + ", " + z + " is out of range!");
+        }
+        return Morton.encode(x, y, z);
+    }
+
+    private int indexOf(long key, int from) {
+        return Arrays.binarySearch(keys, from, size, key);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length + (keys.length >> 1)));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean add(int x, int y, int z) {
+        long key = key(x, y, z);
+        int index = indexOf(key, 0);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        keys[index] = key;
+        size++;
+        return true;
+    }
+
+    public boolean add(IntVector3D position) {
+        return add(position.x, position.y, position.z);
+    }
+
+    /**
+     * Adds all positions, sorting them once and merging them into the set.
+     *
+     * @return the number of positions that were not in the set yet
+     */
+    public int addAll(Collection<IntVector3D> positions) {
+        int previous = size;
+        ensureCapacity(size + positions.size());
+        try {
+            for (IntVector3D position : positions) {
+                keys[size++] = key(position.x, position.y, position.z);
+            }
+        } catch (RuntimeException e) {
+            size = previous; // Drop the unsorted tail
+            throw e;
+        }
+        sortAndDeduplicate();
+        return size - previous;
+    }
+
+    /**
+     * Adds all blocks of the region.
+     *
+     * @return the number of positions that were not in the set yet
+     */
+    public int addAll(CuboidRegion region) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        // Checking the corners covers every block, so the loop below cannot fail halfway
+        key(min.getBlockX(), min.getBlockY(), min.getBlockZ());
+        key(max.getBlockX(), max.getBlockY(), max.getBlockZ());
+        int previous = size;
+        long area = region.getArea();
+        if (area > Integer.MAX_VALUE - size) {
+            throw new IllegalArgumentException("Region is too large!");
+        }
+        ensureCapacity(size + (int) area);
+        region.forEachBlock((x, y, z) -> keys[size++] = Morton.encode(x, y, z));
+        sortAndDeduplicate();
+        return size - previous;
+    }
+
+    private void sortAndDeduplicate() {
+        Arrays.sort(keys, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || keys[i] != keys[unique - 1]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        size = unique;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return Morton.fits(x, y, z) && indexOf(Morton.encode(x, y, z), 0) >= 0;
+    }
+
+    public boolean contains(IntVector3D position) {
+        return contains(position.x, position.y, position.z);
+    }
+
+    public boolean remove(int x, int y, int z) {
+        if (!Morton.fits(x, y, z)) {
+            return false;
+        }
+        int index = indexOf(Morton.encode(x, y, z), 0);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean remove(IntVector3D position) {
+        return remove(position.x, position.y, position.z);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Visits all positions in Z-order.
+     */
+    public void forEach(IntTriConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            consumer.accept(Morton.decodeX(key), Morton.decodeY(key), Morton.decodeZ(key));
+        }
+    }
+
+    /**
+     * Visits all keys in order.
+     */
+    public void forEachKey(LongConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(keys[i]);
+        }
+    }
+
+    /**
+     * Visits the positions within the region in Z-order. Whenever the scan reaches a key outside of the region,
+     * it jumps ahead to the next key that could be inside it.
+     *
+     * @return the number of positions visited
+     */
+    public int forEachIn(CuboidRegion region, IntTriConsumer consumer) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        return forEachIn(min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                max.getBlockX(), max.getBlockY(), max.getBlockZ(), consumer);
+    }
+
+    public int forEachIn(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, IntTriConsumer consumer) {
+        minX = Math.max(minX, Morton.MIN);
+        minY = Math.max(minY, Morton.MIN);
+        minZ = Math.max(minZ, Morton.MIN);
+        maxX = Math.min(maxX, Morton.MAX);
+        maxY = Math.min(maxY, Morton.MAX);
+        maxZ = Math.min(maxZ, Morton.MAX);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return 0;
+        }
+        long min = Morton.encode(minX, minY, minZ);
+        long max = Morton.encode(maxX, maxY, maxZ);
+
+        int visited = 0;
+        int index = lowerBound(min, 0);
+        while (index < size) {
+            long key = keys[index];
+            if (key > max) {
+                break;
+            }
+            if (Morton.inBox(key, min, max)) {
+                consumer.accept(Morton.decodeX(key), Morton.decodeY(key), Morton.decodeZ(key));
+                visited++;
+                index++;
+            } else {
+                index = lowerBound(Morton.nextInBox(key, min, max), index + 1);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return the index of the first key at least the given key, searching from the given index
+     */
+    private int lowerBound(long key, int from) {
+        int index = indexOf(key, from);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return a sorted copy of the keys
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(keys, size);
+    }
+}
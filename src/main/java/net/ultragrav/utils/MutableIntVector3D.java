@@ -0,0 +1,162 @@
+package net.ultragrav.utils;
+
+/**
+ * Mutable companion of {@link IntVector3D}, every operation modifies this vector in place and returns it.
+ * Meant to be reused in hot paths, convert back with {@link #toIntVector()} once done.
+ */
+public class MutableIntVector3D {
+    protected int x;
+    protected int y;
+    protected int z;
+
+    public MutableIntVector3D(int x, int y, int z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public MutableIntVector3D(IntVector3D other) {
+        this(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D() {
+        this(0, 0, 0);
+    }
+
+    public int getX() {
+        return this.x;
+    }
+
+    public int getY() {
+        return this.y;
+    }
+
+    public int getZ() {
+        return this.z;
+    }
+
+    public MutableIntVector3D set(int x, int y, int z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public MutableIntVector3D set(IntVector3D other) {
+        return set(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D set(MutableIntVector3D other) {
+        return set(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D setX(int x) {
+        this.x = x;
+        return this;
+    }
+
+    public MutableIntVector3D setY(int y) {
+        this.y = y;
+        return this;
+    }
+
+    public MutableIntVector3D setZ(int z) {
+        this.z = z;
+        return this;
+    }
+
+    public MutableIntVector3D add(int x, int y, int z) {
+        this.x += x;
+        this.y += y;
+        this.z += z;
+        return this;
+    }
+
+    public MutableIntVector3D add(IntVector3D other) {
+        return add(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D add(MutableIntVector3D other) {
+        return add(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D subtract(int x, int y, int z) {
+        this.x -= x;
+        this.y -= y;
+        this.z -= z;
+        return this;
+    }
+
+    public MutableIntVector3D subtract(IntVector3D other) {
+        return subtract(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D subtract(MutableIntVector3D other) {
+        return subtract(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D multiply(int x, int y, int z) {
+        this.x *= x;
+        this.y *= y;
+        this.z *= z;
+        return this;
+    }
+
+    public MutableIntVector3D multiply(IntVector3D other) {
+        return multiply(other.x, other.y, other.z);
+    }
+
+    public MutableIntVector3D multiply(int n) {
+        return multiply(n, n, n);
+    }
+
+    public MutableIntVector3D divide(int x, int y, int z) {
+        this.x /= x;
+        this.y /= y;
+        this.z /= z;
+        return this;
+    }
+
+    public MutableIntVector3D divide(int n) {
+        return divide(n, n, n);
+    }
+
+    public MutableIntVector3D clamp(IntVector3D min, IntVector3D max) {
+        this.x = Math.min(Math.max(this.x, min.x), max.x);
+        this.y = Math.min(Math.max(this.y, min.y), max.y);
+        this.z = Math.min(Math.max(this.z, min.z), max.z);
+        return this;
+    }
+
+    public MutableIntVector3D clampY(int min, int max) {
+        this.y = Math.max(min, Math.min(max, this.y));
+        return this;
+    }
+
+    public double lengthSq() {
+        return (double) this.x * this.x + (double) this.y * this.y + (double) this.z * this.z;
+    }
+
+    public double distanceSq(IntVector3D other) {
+        double dx = other.x - this.x;
+        double dy = other.y - this.y;
+        double dz = other.z - this.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public boolean containedWithin(IntVector3D min, IntVector3D max) {
+        return this.x >= min.x && this.x <= max.x && this.y >= min.y && this.y <= max.y && this.z >= min.z && this.z <= max.z;
+    }
+
+    public IntVector3D toIntVector() {
+        return new IntVector3D(this.x, this.y, this.z);
+    }
+
+    public Vector3D toVector() {
+        return new Vector3D(this.x, this.y, this.z);
+    }
+
+    public String toString() {
+        return "(" + this.x + ", " + this.y + ", " + this.z + ")";
+    }
+}
@@ -0,0 +1,201 @@
+package net.ultragrav.utils;
+
+/**
+ * Mutable companion of {@link Vector3D}, every operation modifies this vector in place and returns it.
+ * Meant to be reused in hot paths, convert back with {@link #toVector()} once done.
+ */
+public class MutableVector3D {
+    protected double x;
+    protected double y;
+    protected double z;
+
+    public MutableVector3D(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public MutableVector3D(Vector3D other) {
+        this(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D(IntVector3D other) {
+        this(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D() {
+        this(0.0D, 0.0D, 0.0D);
+    }
+
+    public double getX() {
+        return this.x;
+    }
+
+    public double getY() {
+        return this.y;
+    }
+
+    public double getZ() {
+        return this.z;
+    }
+
+    public int getBlockX() {
+        return NumberConversions.floor(this.x);
+    }
+
+    public int getBlockY() {
+        return NumberConversions.floor(this.y);
+    }
+
+    public int getBlockZ() {
+        return NumberConversions.floor(this.z);
+    }
+
+    public MutableVector3D set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public MutableVector3D set(Vector3D other) {
+        return set(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D set(MutableVector3D other) {
+        return set(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D setX(double x) {
+        this.x = x;
+        return this;
+    }
+
+    public MutableVector3D setY(double y) {
+        this.y = y;
+        return this;
+    }
+
+    public MutableVector3D setZ(double z) {
+        this.z = z;
+        return this;
+    }
+
+    public MutableVector3D add(double x, double y, double z) {
+        this.x += x;
+        this.y += y;
+        this.z += z;
+        return this;
+    }
+
+    public MutableVector3D add(Vector3D other) {
+        return add(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D add(MutableVector3D other) {
+        return add(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D subtract(double x, double y, double z) {
+        this.x -= x;
+        this.y -= y;
+        this.z -= z;
+        return this;
+    }
+
+    public MutableVector3D subtract(Vector3D other) {
+        return subtract(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D subtract(MutableVector3D other) {
+        return subtract(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D multiply(double x, double y, double z) {
+        this.x *= x;
+        this.y *= y;
+        this.z *= z;
+        return this;
+    }
+
+    public MutableVector3D multiply(Vector3D other) {
+        return multiply(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D multiply(double n) {
+        return multiply(n, n, n);
+    }
+
+    public MutableVector3D divide(double x, double y, double z) {
+        this.x /= x;
+        this.y /= y;
+        this.z /= z;
+        return this;
+    }
+
+    public MutableVector3D divide(Vector3D other) {
+        return divide(other.x, other.y, other.z);
+    }
+
+    public MutableVector3D divide(double n) {
+        return divide(n, n, n);
+    }
+
+    /**
+     * Adds {@code direction * n} to this vector, the in-place form of {@code add(direction.multiply(n))}.
+     */
+    public MutableVector3D addScaled(Vector3D direction, double n) {
+        return add(direction.x * n, direction.y * n, direction.z * n);
+    }
+
+    public MutableVector3D clamp(Vector3D min, Vector3D max) {
+        this.x = Math.min(Math.max(this.x, min.x), max.x);
+        this.y = Math.min(Math.max(this.y, min.y), max.y);
+        this.z = Math.min(Math.max(this.z, min.z), max.z);
+        return this;
+    }
+
+    public MutableVector3D clampY(double min, double max) {
+        this.y = Math.max(min, Math.min(max, this.y));
+        return this;
+    }
+
+    public MutableVector3D floor() {
+        return set(Math.floor(this.x), Math.floor(this.y), Math.floor(this.z));
+    }
+
+    public MutableVector3D normalize() {
+        return divide(length());
+    }
+
+    public double length() {
+        return Math.sqrt(lengthSq());
+    }
+
+    public double lengthSq() {
+        return this.x * this.x + this.y * this.y + this.z * this.z;
+    }
+
+    public double distanceSq(Vector3D other) {
+        double dx = other.x - this.x;
+        double dy = other.y - this.y;
+        double dz = other.z - this.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public double dot(Vector3D other) {
+        return this.x * other.x + this.y * other.y + this.z * other.z;
+    }
+
+    public Vector3D toVector() {
+        return new Vector3D(this.x, this.y, this.z);
+    }
+
+    public IntVector3D toIntVector() {
+        return new IntVector3D(getBlockX(), getBlockY(), getBlockZ());
+    }
+
+    public String toString() {
+        return "(" + this.x + ", " + this.y + ", " + this.z + ")";
+    }
+}
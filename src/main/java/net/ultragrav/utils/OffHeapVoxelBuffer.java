@@ -0,0 +1,332 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.utils.function.VoxelConsumer;
+import org.bukkit.World;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores a value of 1, 2 or 4 bytes per block of a region outside of the heap, in direct buffers or a memory-mapped
+ * file, for snapshots of regions too large to keep on the heap.
+ * <p>
+ * Blocks are stored in the iteration order of {@link CuboidRegion} (x fastest, then y, then z). A file starts with
+ * a header holding the region's bounds, so a snapshot can be reopened with {@link #open(Path)} without reading the
+ * blocks. Values of 1 and 2 bytes are unsigned.
+ * <p>
+ * The memory of a mapped file is released when the buffer is garbage collected, {@link #close()} only flushes it and
+ * closes the file. Not thread-safe.
+ */
+public class OffHeapVoxelBuffer implements Closeable {
+    private static final int MAGIC = 0x55475642; // "UGVB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = (int) (SEGMENT_SIZE - 1);
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final long volume;
+    private final int bytesPerVoxel;
+
+    private final FileChannel channel;
+    private final ByteBuffer[] segments;
+
+    private OffHeapVoxelBuffer(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, int bytesPerVoxel, FileChannel channel) throws IOException {
+        if (bytesPerVoxel != 1 && bytesPerVoxel != 2 && bytesPerVoxel != 4) {
+            throw new IllegalArgumentException("Bytes per voxel must be 1, 2 or 4!");
+        }
+        if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+            throw new IllegalArgumentException("Invalid size " + sizeX + "x" + sizeY + "x" + sizeZ + "!");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.volume = (long) sizeX * sizeY * sizeZ;
+        this.bytesPerVoxel = bytesPerVoxel;
+        this.channel = channel;
+
+        long bytes = volume * bytesPerVoxel;
+        int segmentCount = (int) ((bytes + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        this.segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            int length = (int) Math.min(SEGMENT_SIZE, bytes - start);
+            segments[i] = channel == null
+                    ? ByteBuffer.allocateDirect(length)
+                    : channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + start, length);
+        }
+    }
+
+    private static int[] bounds(CuboidRegion region) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        return new int[]{min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                max.getBlockX() - min.getBlockX() + 1, max.getBlockY() - min.getBlockY() + 1, max.getBlockZ() - min.getBlockZ() + 1};
+    }
+
+    /**
+     * Allocates a buffer for the region in direct memory, every value starts at 0.
+     *
+     * @param region        the region
+     * @param bytesPerVoxel 1, 2 or 4
+     * @return the buffer
+     */
+    public static OffHeapVoxelBuffer allocate(CuboidRegion region, int bytesPerVoxel) {
+        int[] bounds = bounds(region);
+        try {
+            return new OffHeapVoxelBuffer(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5], bytesPerVoxel, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Cannot happen without a file
+        }
+    }
+
+    /**
+     * Creates a buffer for the region in a memory-mapped file, replacing the file if it exists. Every value starts
+     * at 0.
+     *
+     * @param file          the file
+     * @param region        the region
+     * @param bytesPerVoxel 1, 2 or 4
+     * @return the buffer
+     */
+    public static OffHeapVoxelBuffer create(Path file, CuboidRegion region, int bytesPerVoxel) throws IOException {
+        int[] bounds = bounds(region);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(bytesPerVoxel);
+            for (int value : bounds) {
+                header.putInt(value);
+            }
+            header.rewind();
+            channel.write(header, 0);
+            return new OffHeapVoxelBuffer(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5], bytesPerVoxel, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file created by {@link #create(Path, CuboidRegion, int)}, without reading the blocks.
+     *
+     * @param file the file
+     * @return the buffer
+     * @throws IOException if the file cannot be read or is not a voxel buffer
+     */
+    public static OffHeapVoxelBuffer open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("File is too short to be a voxel buffer!");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("File is not a voxel buffer!");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported voxel buffer version " + version + "!");
+            }
+            int bytesPerVoxel = header.getInt();
+            int minX = header.getInt();
+            int minY = header.getInt();
+            int minZ = header.getInt();
+            int sizeX = header.getInt();
+            int sizeY = header.getInt();
+            int sizeZ = header.getInt();
+            // Validated before mapping, as mapping past the end would silently grow a truncated file with zeros
+            if (bytesPerVoxel != 1 && bytesPerVoxel != 2 && bytesPerVoxel != 4) {
+                throw new IOException("Invalid voxel size " + bytesPerVoxel + "!");
+            }
+            if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+                throw new IOException("Invalid size " + sizeX + "x" + sizeY + "x" + sizeZ + "!");
+            }
+            long expected = HEADER_SIZE + (long) sizeX * sizeY * sizeZ * bytesPerVoxel;
+            if (channel.size() < expected) {
+                throw new IOException("File is truncated, expected " + expected + " bytes but found " + channel.size() + "!");
+            }
+            return new OffHeapVoxelBuffer(minX, minY, minZ, sizeX, sizeY, sizeZ, bytesPerVoxel, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the index of the block, in the iteration order of the region
+     */
+    public long index(int x, int y, int z) {
+        int relativeX = x - minX;
+        int relativeY = y - minY;
+        int relativeZ = z - minZ;
+        if (relativeX < 0 || relativeX >= sizeX || relativeY < 0 || relativeY >= sizeY || relativeZ < 0 || relativeZ >= sizeZ) {
+            throw new IndexOutOfBoundsException("Position " + x + ", " + y + ", " + z + " is outside of the buffer!");
+        }
+        return ((long) relativeZ * sizeY + relativeY) * sizeX + relativeX;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= volume) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of the buffer!");
+        }
+    }
+
+    private int read(long index) {
+        long offset = index * bytesPerVoxel;
+        ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+        int position = (int) offset & SEGMENT_MASK;
+        switch (bytesPerVoxel) {
+            case 1:
+                return segment.get(position) & 0xFF;
+            case 2:
+                return segment.getShort(position) & 0xFFFF;
+            default:
+                return segment.getInt(position);
+        }
+    }
+
+    private void write(long index, int value) {
+        long offset = index * bytesPerVoxel;
+        ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+        int position = (int) offset & SEGMENT_MASK;
+        switch (bytesPerVoxel) {
+            case 1:
+                segment.put(position, (byte) value);
+                break;
+            case 2:
+                segment.putShort(position, (short) value);
+                break;
+            default:
+                segment.putInt(position, value);
+        }
+    }
+
+    public int get(int x, int y, int z) {
+        return read(index(x, y, z));
+    }
+
+    public int get(long index) {
+        checkIndex(index);
+        return read(index);
+    }
+
+    public void set(int x, int y, int z, int value) {
+        write(index(x, y, z), value);
+    }
+
+    public void set(long index, int value) {
+        checkIndex(index);
+        write(index, value);
+    }
+
+    /**
+     * Copies consecutive values into the array, starting at the given block index.
+     */
+    public void get(long index, int[] destination, int offset, int length) {
+        if (length < 0 || offset < 0 || offset + length > destination.length) {
+            throw new IndexOutOfBoundsException("Invalid array range!");
+        }
+        if (length > 0) {
+            checkIndex(index);
+            checkIndex(index + length - 1);
+        }
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = read(index + i);
+        }
+    }
+
+    /**
+     * Copies values from the array into consecutive blocks, starting at the given block index.
+     */
+    public void set(long index, int[] source, int offset, int length) {
+        if (length < 0 || offset < 0 || offset + length > source.length) {
+            throw new IndexOutOfBoundsException("Invalid array range!");
+        }
+        if (length > 0) {
+            checkIndex(index);
+            checkIndex(index + length - 1);
+        }
+        for (int i = 0; i < length; i++) {
+            write(index + i, source[offset + i]);
+        }
+    }
+
+    /**
+     * Visits every block with its value, in the iteration order of the region.
+     */
+    public void forEach(VoxelConsumer consumer) {
+        long index = 0;
+        for (int z = 0; z < sizeZ; z++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++) {
+                    consumer.accept(minX + x, minY + y, minZ + z, read(index++));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes changes to a memory-mapped file to disk, straight from the mapped memory. Does nothing for direct
+     * buffers.
+     */
+    public void force() {
+        for (ByteBuffer segment : segments) {
+            if (segment instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+
+    /**
+     * Flushes the buffer and closes its file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+
+    /**
+     * @return whether this buffer is backed by a file
+     */
+    public boolean isMapped() {
+        return channel != null;
+    }
+
+    public int getBytesPerVoxel() {
+        return bytesPerVoxel;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * @param world the world of the region
+     * @return the region this buffer covers
+     */
+    public CuboidRegion getRegion(World world) {
+        return new CuboidRegion(world, new IntVector3D(minX, minY, minZ), new IntVector3D(minX + sizeX - 1, minY + sizeY - 1, minZ + sizeZ - 1));
+    }
+}
@@ -0,0 +1,448 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.serializer.GravSerializable;
+import net.ultragrav.serializer.GravSerializer;
+import net.ultragrav.utils.function.VoxelConsumer;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage of an id per block, like {@link Registry} ids, for a 16x16x16 section or the volume of a
+ * {@link CuboidRegion}.
+ * <p>
+ * Ids are mapped to a local palette and the palette indices are bit-packed into a {@code long[]}, using as few bits
+ * as the palette needs. The width grows automatically as the palette does. Indices never span two longs. While a
+ * single id is stored there is no array at all.
+ * <p>
+ * Blocks are indexed x fastest, then y, then z, relative to the origin. Ids cannot be negative.
+ * <p>
+ * Not thread-safe.
+ */
+public class PalettedContainer implements GravSerializable {
+    public static final int SECTION_SIZE = 16;
+
+    /**
+     * Palettes up to this size are searched linearly, larger ones through {@link #lookupIds}.
+     */
+    private static final int LINEAR_SCAN_SIZE = 16;
+
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int volume;
+
+    private int bits;
+    private int valuesPerLong;
+    private long mask;
+    private long[] data;
+
+    private int[] palette;
+    private int paletteSize;
+    /**
+     * Open addressing table from id to palette index, sized by the palette, -1 marking a free slot. Null while the
+     * palette is small enough to search linearly.
+     */
+    private int[] lookupIds;
+    private int[] lookupLocals;
+
+    /**
+     * Creates a container for a section, with the origin at 0, 0, 0.
+     *
+     * @param id the id every block starts with
+     * @return the container
+     */
+    public static PalettedContainer section(int id) {
+        return new PalettedContainer(0, 0, 0, SECTION_SIZE, SECTION_SIZE, SECTION_SIZE, id);
+    }
+
+    /**
+     * Creates a container for the blocks of the region, with the origin at its minimum point.
+     *
+     * @param region the region
+     * @param id     the id every block starts with
+     */
+    public PalettedContainer(CuboidRegion region, int id) {
+        this(region.getMinimumPoint().getBlockX(), region.getMinimumPoint().getBlockY(), region.getMinimumPoint().getBlockZ(),
+                region.getMaximumPoint().getBlockX() - region.getMinimumPoint().getBlockX() + 1,
+                region.getMaximumPoint().getBlockY() - region.getMinimumPoint().getBlockY() + 1,
+                region.getMaximumPoint().getBlockZ() - region.getMinimumPoint().getBlockZ() + 1, id);
+    }
+
+    public PalettedContainer(int originX, int originY, int originZ, int sizeX, int sizeY, int sizeZ, int id) {
+        if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0 || (long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid size " + sizeX + "x" + sizeY + "x" + sizeZ + "!");
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.volume = sizeX * sizeY * sizeZ;
+        fill(id);
+    }
+
+    public PalettedContainer(GravSerializer serializer) {
+        this(serializer.readInt(), serializer.readInt(), serializer.readInt(),
+                serializer.readInt(), serializer.readInt(), serializer.readInt(), 0);
+        int paletteSize = serializer.readInt();
+        if (paletteSize < 1 || paletteSize > volume) {
+            throw new IllegalArgumentException("Invalid palette size " + paletteSize + "!");
+        }
+        int[] palette = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = serializer.readInt();
+            if (palette[i] < 0) {
+                throw new IllegalArgumentException("Id cannot be negative!");
+            }
+        }
+        int bits = serializer.readByte();
+        if (bits != bitsFor(paletteSize)) {
+            throw new IllegalArgumentException("Invalid width of " + bits + " bits for " + paletteSize + " ids!");
+        }
+        this.palette = palette;
+        this.paletteSize = paletteSize;
+        rebuildLookup();
+        setBits(bits);
+        long[] data = this.data;
+        for (int i = 0; i < data.length; i++) {
+            data[i] = serializer.readLong();
+        }
+    }
+
+    @Override
+    public void serialize(GravSerializer serializer) {
+        serializer.writeInt(originX);
+        serializer.writeInt(originY);
+        serializer.writeInt(originZ);
+        serializer.writeInt(sizeX);
+        serializer.writeInt(sizeY);
+        serializer.writeInt(sizeZ);
+        serializer.writeInt(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            serializer.writeInt(palette[i]);
+        }
+        serializer.writeByte((byte) bits);
+        for (long word : data) {
+            serializer.writeLong(word);
+        }
+    }
+
+    /**
+     * Allocates an empty array for the given width. Does not move existing data.
+     */
+    private void setBits(int bits) {
+        this.bits = bits;
+        if (bits == 0) {
+            this.valuesPerLong = 0;
+            this.mask = 0;
+            this.data = new long[0];
+        } else {
+            this.valuesPerLong = 64 / bits;
+            this.mask = (1L << bits) - 1;
+            this.data = new long[(volume + valuesPerLong - 1) / valuesPerLong];
+        }
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return paletteSize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    /**
+     * Adds the id at the end of the palette to the lookup table.
+     */
+    private void index(int id, int local) {
+        if (paletteSize <= LINEAR_SCAN_SIZE) {
+            return;
+        }
+        if (lookupIds == null || paletteSize * 2 > lookupIds.length) {
+            rebuildLookup();
+            return;
+        }
+        insertLookup(id, local);
+    }
+
+    /**
+     * Rebuilds the lookup table from the palette, dropping it if the palette is small.
+     */
+    private void rebuildLookup() {
+        if (paletteSize <= LINEAR_SCAN_SIZE) {
+            lookupIds = null;
+            lookupLocals = null;
+            return;
+        }
+        int size = Integer.highestOneBit(paletteSize * 4 - 1);
+        lookupIds = new int[size];
+        lookupLocals = new int[size];
+        Arrays.fill(lookupIds, -1);
+        for (int i = 0; i < paletteSize; i++) {
+            insertLookup(palette[i], i);
+        }
+    }
+
+    private static int lookupSlot(int id, int mask) {
+        return (id * 0x9E3779B9 >>> 16) & mask;
+    }
+
+    private void insertLookup(int id, int local) {
+        int mask = lookupIds.length - 1;
+        int slot = lookupSlot(id, mask);
+        while (lookupIds[slot] != -1) {
+            slot = (slot + 1) & mask;
+        }
+        lookupIds[slot] = id;
+        lookupLocals[slot] = local;
+    }
+
+    /**
+     * @return the palette index of the id, or -1 if it is not in the palette
+     */
+    private int localOf(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Id cannot be negative!");
+        }
+        int[] lookupIds = this.lookupIds;
+        if (lookupIds == null) {
+            for (int i = 0; i < paletteSize; i++) {
+                if (palette[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = lookupIds.length - 1;
+        int slot = lookupSlot(id, mask);
+        int current;
+        while ((current = lookupIds[slot]) != -1) {
+            if (current == id) {
+                return lookupLocals[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the palette index of the id, adding it to the palette and widening the storage if needed.
+     */
+    private int localOrAdd(int id) {
+        int local = localOf(id);
+        if (local != -1) {
+            return local;
+        }
+        local = paletteSize++;
+        if (local == palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        palette[local] = id;
+        index(id, local);
+        int bits = bitsFor(paletteSize);
+        if (bits != this.bits) {
+            resize(bits, null);
+        }
+        return local;
+    }
+
+    /**
+     * Repacks the palette indices with another width, straight from the old words into the new ones.
+     *
+     * @param remap the new index of every old palette index, or null to keep them
+     */
+    private void resize(int bits, int[] remap) {
+        int oldBits = this.bits;
+        int oldValuesPerLong = this.valuesPerLong;
+        long oldMask = this.mask;
+        long[] oldData = this.data;
+        setBits(bits);
+        if (oldBits == 0) {
+            return; // Every block has palette index 0
+        }
+        if (bits == 0) {
+            return; // Every block has the only palette index left
+        }
+        for (int i = 0; i < volume; i++) {
+            int local = (int) ((oldData[i / oldValuesPerLong] >>> ((i % oldValuesPerLong) * oldBits)) & oldMask);
+            setLocal(i, remap == null ? local : remap[local]);
+        }
+    }
+
+    private int getLocal(int index) {
+        if (bits == 0) {
+            return 0;
+        }
+        return (int) ((data[index / valuesPerLong] >>> ((index % valuesPerLong) * bits)) & mask);
+    }
+
+    private void setLocal(int index, int local) {
+        int word = index / valuesPerLong;
+        int shift = (index % valuesPerLong) * bits;
+        data[word] = (data[word] & ~(mask << shift)) | ((long) local << shift);
+    }
+
+    /**
+     * @return the index of the block, x fastest, then y, then z
+     */
+    public int index(int x, int y, int z) {
+        int relativeX = x - originX;
+        int relativeY = y - originY;
+        int relativeZ = z - originZ;
+        if (relativeX < 0 || relativeX >= sizeX || relativeY < 0 || relativeY >= sizeY || relativeZ < 0 || relativeZ >= sizeZ) {
+            throw new IndexOutOfBoundsException("Position " + x + ", " + y + ", " + z + " is outside of the container!");
+        }
+        return (relativeZ * sizeY + relativeY) * sizeX + relativeX;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= volume) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of the container!");
+        }
+        return palette[getLocal(index)];
+    }
+
+    public int get(int x, int y, int z) {
+        return palette[getLocal(index(x, y, z))];
+    }
+
+    public void set(int index, int id) {
+        if (index < 0 || index >= volume) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of the container!");
+        }
+        int local = localOrAdd(id);
+        if (bits != 0) {
+            setLocal(index, local);
+        }
+    }
+
+    public void set(int x, int y, int z, int id) {
+        set(index(x, y, z), id);
+    }
+
+    /**
+     * Sets every block to the id, switching back to a single value without any storage.
+     */
+    public void fill(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Id cannot be negative!");
+        }
+        this.palette = new int[]{id};
+        this.paletteSize = 1;
+        rebuildLookup();
+        setBits(0);
+    }
+
+    /**
+     * Sets every block of the region that lies within this container to the id.
+     */
+    public void fill(CuboidRegion region, int id) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        fill(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ(), id);
+    }
+
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int id) {
+        minX = Math.max(minX, originX) - originX;
+        minY = Math.max(minY, originY) - originY;
+        minZ = Math.max(minZ, originZ) - originZ;
+        maxX = Math.min(maxX, originX + sizeX - 1) - originX;
+        maxY = Math.min(maxY, originY + sizeY - 1) - originY;
+        maxZ = Math.min(maxZ, originZ + sizeZ - 1) - originZ;
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return;
+        }
+        if (minX == 0 && minY == 0 && minZ == 0 && maxX == sizeX - 1 && maxY == sizeY - 1 && maxZ == sizeZ - 1) {
+            fill(id);
+            return;
+        }
+        int local = localOrAdd(id);
+        if (bits == 0) {
+            return;
+        }
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int y = minY; y <= maxY; y++) {
+                int row = (z * sizeY + y) * sizeX;
+                for (int x = minX; x <= maxX; x++) {
+                    setLocal(row + x, local);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes ids that are no longer used from the palette, narrowing the storage if possible.
+     */
+    public void compact() {
+        if (bits == 0) {
+            return;
+        }
+        int[] counts = new int[paletteSize];
+        for (int i = 0; i < volume; i++) {
+            counts[getLocal(i)]++;
+        }
+        int[] remap = new int[paletteSize];
+        int[] palette = new int[paletteSize];
+        int size = 0;
+        for (int i = 0; i < paletteSize; i++) {
+            if (counts[i] > 0) {
+                remap[i] = size;
+                palette[size++] = this.palette[i];
+            }
+        }
+        if (size == paletteSize) {
+            return;
+        }
+        this.palette = palette;
+        this.paletteSize = size;
+        rebuildLookup();
+        resize(bitsFor(size), remap);
+    }
+
+    /**
+     * Visits every block with its id, in index order.
+     */
+    public void forEach(VoxelConsumer consumer) {
+        int index = 0;
+        for (int z = 0; z < sizeZ; z++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++) {
+                    consumer.accept(originX + x, originY + y, originZ + z, palette[getLocal(index++)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether every block has the same id, without storage
+     */
+    public boolean isSingleValue() {
+        return bits == 0;
+    }
+
+    /**
+     * @return the number of bits per block
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * @return the ids in the palette, some of which may no longer be used until {@link #compact()}
+     */
+    public int[] getPalette() {
+        return Arrays.copyOf(palette, paletteSize);
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public IntVector3D getOrigin() {
+        return new IntVector3D(originX, originY, originZ);
+    }
+
+    public IntVector3D getSize() {
+        return new IntVector3D(sizeX, sizeY, sizeZ);
+    }
+}
@@ -0,0 +1,346 @@
+package net.ultragrav.utils;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Bounding volume hierarchy over {@link CuboidRegion}s, for casting rays against many boxes, like hitboxes.
+ * <p>
+ * The hierarchy is immutable and stored in flat arrays, build a new one when the boxes move. A raycast computes
+ * the inverse direction once and reuses it for every slab test, without allocating per tested node.
+ * Distances are measured along the normalized direction, the same as
+ * {@link CuboidRegion#getIntersectionPoints(Vector3D, Vector3D)}, and the boxes span from the minimum to the
+ * maximum point of each region.
+ *
+ * @param <T> Type of value attached to each region
+ */
+public class RegionBVH<T> {
+    private static final int MAX_LEAF_SIZE = 4;
+
+    private final Object[] values;
+    private final CuboidRegion[] regions;
+    /**
+     * Six bounds per region, min x/y/z then max x/y/z, in leaf order.
+     */
+    private final double[] bounds;
+
+    /**
+     * Six bounds per node, like {@link #bounds}.
+     */
+    private double[] nodeBounds;
+    /**
+     * First region of a leaf, or the index of the right child of an inner node (the left child follows its parent).
+     */
+    private int[] nodeStart;
+    /**
+     * Number of regions of a leaf, 0 for inner nodes.
+     */
+    private int[] nodeCount;
+    private int nodes;
+    private int depth;
+
+    private RegionBVH(List<CuboidRegion> regions, List<T> values) {
+        int count = regions.size();
+        this.values = new Object[count];
+        this.regions = new CuboidRegion[count];
+        this.bounds = new double[count * 6];
+
+        double[] unordered = new double[count * 6];
+        double[] centers = new double[count * 3];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            Vector3D min = regions.get(i).getMinimumPoint();
+            Vector3D max = regions.get(i).getMaximumPoint();
+            unordered[i * 6] = min.x;
+            unordered[i * 6 + 1] = min.y;
+            unordered[i * 6 + 2] = min.z;
+            unordered[i * 6 + 3] = max.x;
+            unordered[i * 6 + 4] = max.y;
+            unordered[i * 6 + 5] = max.z;
+            centers[i * 3] = (min.x + max.x) / 2;
+            centers[i * 3 + 1] = (min.y + max.y) / 2;
+            centers[i * 3 + 2] = (min.z + max.z) / 2;
+            order[i] = i;
+        }
+
+        int maxNodes = Math.max(1, 2 * count);
+        this.nodeBounds = new double[maxNodes * 6];
+        this.nodeStart = new int[maxNodes];
+        this.nodeCount = new int[maxNodes];
+        if (count > 0) {
+            build(order, 0, count, unordered, centers, 1);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int original = order[i];
+            this.values[i] = values.get(original);
+            this.regions[i] = regions.get(original);
+            System.arraycopy(unordered, original * 6, this.bounds, i * 6, 6);
+        }
+    }
+
+    /**
+     * Builds a hierarchy over the values, using the region function to get the box of each value.
+     */
+    public static <T> RegionBVH<T> build(Collection<? extends T> values, Function<? super T, CuboidRegion> regionFunction) {
+        List<CuboidRegion> regions = new ArrayList<>(values.size());
+        List<T> list = new ArrayList<>(values.size());
+        for (T value : values) {
+            regions.add(regionFunction.apply(value));
+            list.add(value);
+        }
+        return new RegionBVH<>(regions, list);
+    }
+
+    public static RegionBVH<CuboidRegion> of(Collection<CuboidRegion> regions) {
+        return build(regions, Function.identity());
+    }
+
+    /**
+     * Builds the subtree over order[from, to) and returns its node index. Splits at the median centre along the
+     * longest axis of the centres.
+     */
+    private int build(Integer[] order, int from, int to, double[] unordered, double[] centers, int level) {
+        int node = nodes++;
+        depth = Math.max(depth, level);
+
+        double[] nodeBounds = this.nodeBounds;
+        int offset = node * 6;
+        for (int axis = 0; axis < 3; axis++) {
+            nodeBounds[offset + axis] = Double.POSITIVE_INFINITY;
+            nodeBounds[offset + 3 + axis] = Double.NEGATIVE_INFINITY;
+        }
+        double[] centerMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] centerMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = from; i < to; i++) {
+            int region = order[i];
+            for (int axis = 0; axis < 3; axis++) {
+                nodeBounds[offset + axis] = Math.min(nodeBounds[offset + axis], unordered[region * 6 + axis]);
+                nodeBounds[offset + 3 + axis] = Math.max(nodeBounds[offset + 3 + axis], unordered[region * 6 + 3 + axis]);
+                centerMin[axis] = Math.min(centerMin[axis], centers[region * 3 + axis]);
+                centerMax[axis] = Math.max(centerMax[axis], centers[region * 3 + axis]);
+            }
+        }
+
+        if (to - from <= MAX_LEAF_SIZE) {
+            nodeStart[node] = from;
+            nodeCount[node] = to - from;
+            return node;
+        }
+
+        int axis = 0;
+        for (int i = 1; i < 3; i++) {
+            if (centerMax[i] - centerMin[i] > centerMax[axis] - centerMin[axis]) {
+                axis = i;
+            }
+        }
+        int splitAxis = axis;
+        Arrays.sort(order, from, to, Comparator.comparingDouble(region -> centers[region * 3 + splitAxis]));
+        int middle = (from + to) >>> 1;
+
+        build(order, from, middle, unordered, centers, level + 1);
+        nodeStart[node] = build(order, middle, to, unordered, centers, level + 1);
+        nodeCount[node] = 0;
+        return node;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the entry distance of the ray into the box at the offset, or infinity if it misses.
+     */
+    private static double slab(double[] bounds, int offset, double ox, double oy, double oz,
+                               double invX, double invY, double invZ, double maxDistance) {
+        double t1 = (bounds[offset] - ox) * invX;
+        double t2 = (bounds[offset + 3] - ox) * invX;
+        double tMin = Math.min(t1, t2);
+        double tMax = Math.max(t1, t2);
+
+        t1 = (bounds[offset + 1] - oy) * invY;
+        t2 = (bounds[offset + 4] - oy) * invY;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+
+        t1 = (bounds[offset + 2] - oz) * invZ;
+        t2 = (bounds[offset + 5] - oz) * invZ;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+
+        // Negated so that NaN, from a ray parallel to and exactly on a face, counts as a miss
+        if (!(tMax >= 0) || !(tMin <= tMax) || tMin > maxDistance) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(tMin, 0);
+    }
+
+    private static void checkMaxDistance(double maxDistance) {
+        if (!(maxDistance >= 0)) {
+            throw new IllegalArgumentException("Max distance cannot be negative or NaN!");
+        }
+    }
+
+    /**
+     * Returns the nearest region the ray hits.
+     *
+     * @param origin      the origin of the ray
+     * @param direction   the direction of the ray, does not need to be normalized
+     * @param maxDistance the maximum distance from the origin, {@link Double#POSITIVE_INFINITY} for no limit
+     * @return the nearest hit, or null if the ray hits nothing
+     */
+    @SuppressWarnings("unchecked")
+    public Hit<T> raycast(Vector3D origin, Vector3D direction, double maxDistance) {
+        checkMaxDistance(maxDistance);
+        if (values.length == 0) {
+            return null;
+        }
+        double length = direction.length();
+        double dirX = direction.x / length;
+        double dirY = direction.y / length;
+        double dirZ = direction.z / length;
+        double invX = 1 / dirX;
+        double invY = 1 / dirY;
+        double invZ = 1 / dirZ;
+        double ox = origin.x;
+        double oy = origin.y;
+        double oz = origin.z;
+
+        int best = -1;
+        double bestDistance = maxDistance;
+
+        int[] stack = new int[depth + 1];
+        int top = 0;
+        if (slab(nodeBounds, 0, ox, oy, oz, invX, invY, invZ, bestDistance) != Double.POSITIVE_INFINITY) {
+            stack[top++] = 0;
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            int count = nodeCount[node];
+            if (count > 0) {
+                int start = nodeStart[node];
+                for (int i = start; i < start + count; i++) {
+                    double distance = slab(bounds, i * 6, ox, oy, oz, invX, invY, invZ, bestDistance);
+                    if (distance != Double.POSITIVE_INFINITY && distance <= bestDistance) {
+                        best = i;
+                        bestDistance = distance;
+                    }
+                }
+                continue;
+            }
+            int left = node + 1;
+            int right = nodeStart[node];
+            double leftDistance = slab(nodeBounds, left * 6, ox, oy, oz, invX, invY, invZ, bestDistance);
+            double rightDistance = slab(nodeBounds, right * 6, ox, oy, oz, invX, invY, invZ, bestDistance);
+            // Push the farther child first, so the nearer one is visited first and can shrink bestDistance
+            if (leftDistance <= rightDistance) {
+                if (rightDistance != Double.POSITIVE_INFINITY) stack[top++] = right;
+                if (leftDistance != Double.POSITIVE_INFINITY) stack[top++] = left;
+            } else {
+                if (leftDistance != Double.POSITIVE_INFINITY) stack[top++] = left;
+                stack[top++] = right;
+            }
+        }
+
+        if (best == -1) {
+            return null;
+        }
+        return new Hit<>((T) values[best], regions[best], bestDistance,
+                ox + dirX * bestDistance, oy + dirY * bestDistance, oz + dirZ * bestDistance);
+    }
+
+    /**
+     * Returns every region the ray hits, nearest first.
+     *
+     * @param origin      the origin of the ray
+     * @param direction   the direction of the ray, does not need to be normalized
+     * @param maxDistance the maximum distance from the origin, {@link Double#POSITIVE_INFINITY} for no limit
+     * @return the hits, sorted by distance
+     */
+    @SuppressWarnings("unchecked")
+    public List<Hit<T>> raycastAll(Vector3D origin, Vector3D direction, double maxDistance) {
+        checkMaxDistance(maxDistance);
+        List<Hit<T>> hits = new ArrayList<>();
+        if (values.length == 0) {
+            return hits;
+        }
+        double length = direction.length();
+        double dirX = direction.x / length;
+        double dirY = direction.y / length;
+        double dirZ = direction.z / length;
+        double invX = 1 / dirX;
+        double invY = 1 / dirY;
+        double invZ = 1 / dirZ;
+        double ox = origin.x;
+        double oy = origin.y;
+        double oz = origin.z;
+
+        int[] stack = new int[depth + 1];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (slab(nodeBounds, node * 6, ox, oy, oz, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count > 0) {
+                int start = nodeStart[node];
+                for (int i = start; i < start + count; i++) {
+                    double distance = slab(bounds, i * 6, ox, oy, oz, invX, invY, invZ, maxDistance);
+                    if (distance != Double.POSITIVE_INFINITY) {
+                        hits.add(new Hit<>((T) values[i], regions[i], distance,
+                                ox + dirX * distance, oy + dirY * distance, oz + dirZ * distance));
+                    }
+                }
+                continue;
+            }
+            stack[top++] = nodeStart[node];
+            stack[top++] = node + 1;
+        }
+        hits.sort(Comparator.comparingDouble(Hit::getDistance));
+        return hits;
+    }
+
+    /**
+     * A region hit by a ray.
+     *
+     * @param <T> Type of value attached to the region
+     */
+    public static final class Hit<T> {
+        private final T value;
+        private final CuboidRegion region;
+        private final double distance;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        private Hit(T value, CuboidRegion region, double distance, double x, double y, double z) {
+            this.value = value;
+            this.region = region;
+            this.distance = distance;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public CuboidRegion getRegion() {
+            return region;
+        }
+
+        /**
+         * Returns the distance from the origin to where the ray enters the region, 0 if it starts inside.
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        public Vector3D getPoint() {
+            return new Vector3D(x, y, z);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package net.ultragrav.utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index of block boxes, usually {@link CuboidRegion}s, with a payload per box.
+ * <p>
+ * Boxes are bucketed into a grid of vertical columns, 16x16 blocks (one chunk) unless configured otherwise, so
+ * point and chunk queries only look at the boxes in a single column. Boxes that span more than
+ * {@link #LARGE_BOX_CELLS} columns are kept in a separate list and checked by every query instead.
+ * <p>
+ * All coordinates are block coordinates and bounds are inclusive. The bounds of a region are captured when it is
+ * added, a region that changes afterwards has to be removed and added again.
+ * <p>
+ * Queries never block and may run on any thread while another thread adds or removes boxes. Every column's bucket
+ * is replaced atomically, but a box is added to or removed from its columns one at a time, so a query running
+ * concurrently with {@link #add(CuboidRegion, Object)} or {@link #remove(Entry)} may or may not report that box, even
+ * in columns it was already added to. Queries that start after the call returned always see its result.
+ *
+ * @param <T> Type of payload
+ */
+public class RegionIndex<T> {
+    public static final int LARGE_BOX_CELLS = 1024;
+
+    private static final Entry<?>[] EMPTY = new Entry<?>[0];
+
+    private final int cellShift;
+    private final Map<Long, Entry<T>[]> cells = new ConcurrentHashMap<>();
+    private final List<Entry<T>> largeEntries = new CopyOnWriteArrayList<>();
+    private final Set<Entry<T>> entries = ConcurrentHashMap.newKeySet();
+
+    public RegionIndex() {
+        this(4);
+    }
+
+    /**
+     * @param cellShift the log2 of the column width, 4 for chunk-sized columns
+     */
+    public RegionIndex(int cellShift) {
+        if (cellShift < 0 || cellShift > 30) {
+            throw new IllegalArgumentException("Cell shift must be between 0 and 30!");
+        }
+        this.cellShift = cellShift;
+    }
+
+    /**
+     * Adds a region to the index.
+     *
+     * @param region the region
+     * @param value  the payload
+     * @return the entry, used to remove the region again
+     */
+    public Entry<T> add(CuboidRegion region, T value) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        return add(new Entry<>(region, min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                max.getBlockX(), max.getBlockY(), max.getBlockZ(), value));
+    }
+
+    /**
+     * Adds a box to the index.
+     *
+     * @param value the payload
+     * @return the entry, used to remove the box again
+     */
+    public Entry<T> add(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, T value) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            throw new IllegalArgumentException("Minimum cannot be larger than maximum!");
+        }
+        return add(new Entry<>(null, minX, minY, minZ, maxX, maxY, maxZ, value));
+    }
+
+    private Entry<T> add(Entry<T> entry) {
+        entries.add(entry);
+        if (isLarge(entry)) {
+            largeEntries.add(entry);
+            return entry;
+        }
+        for (int cx = entry.minX >> cellShift; cx <= entry.maxX >> cellShift; cx++) {
+            for (int cz = entry.minZ >> cellShift; cz <= entry.maxZ >> cellShift; cz++) {
+                cells.compute(BlockPos.chunkKey(cx, cz), (key, bucket) -> append(bucket, entry));
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Removes an entry returned by one of the add methods.
+     *
+     * @param entry the entry
+     * @return false if the entry was not part of this index
+     */
+    public boolean remove(Entry<T> entry) {
+        if (!entries.remove(entry)) {
+            return false;
+        }
+        if (isLarge(entry)) {
+            largeEntries.remove(entry);
+            return true;
+        }
+        for (int cx = entry.minX >> cellShift; cx <= entry.maxX >> cellShift; cx++) {
+            for (int cz = entry.minZ >> cellShift; cz <= entry.maxZ >> cellShift; cz++) {
+                cells.computeIfPresent(BlockPos.chunkKey(cx, cz), (key, bucket) -> without(bucket, entry));
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (Entry<T> entry : new ArrayList<>(entries)) {
+            remove(entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Returns a snapshot of all entries.
+     */
+    public Collection<Entry<T>> entries() {
+        return Collections.unmodifiableCollection(new ArrayList<>(entries));
+    }
+
+    private boolean isLarge(Entry<T> entry) {
+        long width = (long) (entry.maxX >> cellShift) - (entry.minX >> cellShift) + 1;
+        long length = (long) (entry.maxZ >> cellShift) - (entry.minZ >> cellShift) + 1;
+        return width * length > LARGE_BOX_CELLS;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] append(Entry<T>[] bucket, Entry<T> entry) {
+        if (bucket == null) {
+            return new Entry[]{entry};
+        }
+        Entry<T>[] result = Arrays.copyOf(bucket, bucket.length + 1);
+        result[bucket.length] = entry;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] without(Entry<T>[] bucket, Entry<T> entry) {
+        for (int i = 0; i < bucket.length; i++) {
+            if (bucket[i] == entry) {
+                if (bucket.length == 1) {
+                    return null; // Drops the mapping
+                }
+                Entry<T>[] result = new Entry[bucket.length - 1];
+                System.arraycopy(bucket, 0, result, 0, i);
+                System.arraycopy(bucket, i + 1, result, i, bucket.length - i - 1);
+                return result;
+            }
+        }
+        return bucket;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<T>[] bucket(int cx, int cz) {
+        Entry<T>[] bucket = cells.get(BlockPos.chunkKey(cx, cz));
+        return bucket == null ? (Entry<T>[]) EMPTY : bucket;
+    }
+
+    /**
+     * Calls the consumer with every entry containing the block.
+     */
+    public void forEachAt(int x, int y, int z, Consumer<? super Entry<T>> consumer) {
+        for (Entry<T> entry : bucket(x >> cellShift, z >> cellShift)) {
+            if (entry.contains(x, y, z)) {
+                consumer.accept(entry);
+            }
+        }
+        for (Entry<T> entry : largeEntries) {
+            if (entry.contains(x, y, z)) {
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the payloads of every entry containing the block.
+     */
+    public List<T> getAt(int x, int y, int z) {
+        List<T> result = new ArrayList<>();
+        forEachAt(x, y, z, entry -> result.add(entry.value));
+        return result;
+    }
+
+    public List<T> getAt(Vector3D position) {
+        return getAt(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+    }
+
+    /**
+     * Returns the payload of any entry containing the block, or null if there is none.
+     */
+    public T getAnyAt(int x, int y, int z) {
+        for (Entry<T> entry : bucket(x >> cellShift, z >> cellShift)) {
+            if (entry.contains(x, y, z)) {
+                return entry.value;
+            }
+        }
+        for (Entry<T> entry : largeEntries) {
+            if (entry.contains(x, y, z)) {
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    public boolean containsAny(int x, int y, int z) {
+        return getAnyAt(x, y, z) != null;
+    }
+
+    /**
+     * Calls the consumer once with every entry intersecting the box.
+     */
+    public void forEachIntersecting(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Consumer<? super Entry<T>> consumer) {
+        int minCX = minX >> cellShift;
+        int minCZ = minZ >> cellShift;
+        int maxCX = maxX >> cellShift;
+        int maxCZ = maxZ >> cellShift;
+
+        if (((long) maxCX - minCX + 1) * ((long) maxCZ - minCZ + 1) > entries.size()) {
+            // Cheaper to look at every entry than at every column
+            for (Entry<T> entry : entries) {
+                if (entry.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+                    consumer.accept(entry);
+                }
+            }
+            return;
+        }
+
+        for (int cx = minCX; cx <= maxCX; cx++) {
+            for (int cz = minCZ; cz <= maxCZ; cz++) {
+                for (Entry<T> entry : bucket(cx, cz)) {
+                    // An entry is in every column it spans, only report it from the first one the query shares
+                    if (cx != Math.max(entry.minX >> cellShift, minCX) || cz != Math.max(entry.minZ >> cellShift, minCZ)) {
+                        continue;
+                    }
+                    if (entry.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+                        consumer.accept(entry);
+                    }
+                }
+            }
+        }
+        for (Entry<T> entry : largeEntries) {
+            if (entry.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the payloads of every entry intersecting the region.
+     */
+    public List<T> getIntersecting(CuboidRegion region) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        List<T> result = new ArrayList<>();
+        forEachIntersecting(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ(),
+                entry -> result.add(entry.value));
+        return result;
+    }
+
+    /**
+     * Calls the consumer once with every entry intersecting the chunk.
+     */
+    public void forEachInChunk(int chunkX, int chunkZ, Consumer<? super Entry<T>> consumer) {
+        forEachIntersecting(chunkX << 4, Integer.MIN_VALUE, chunkZ << 4, (chunkX << 4) + 15, Integer.MAX_VALUE, (chunkZ << 4) + 15, consumer);
+    }
+
+    /**
+     * Returns the payloads of every entry intersecting the chunk.
+     */
+    public List<T> getInChunk(int chunkX, int chunkZ) {
+        List<T> result = new ArrayList<>();
+        forEachInChunk(chunkX, chunkZ, entry -> result.add(entry.value));
+        return result;
+    }
+
+    /**
+     * A box in a {@link RegionIndex}, with the bounds captured when it was added.
+     *
+     * @param <T> Type of payload
+     */
+    public static final class Entry<T> {
+        private final CuboidRegion region;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        private final T value;
+
+        private Entry(CuboidRegion region, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, T value) {
+            this.region = region;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+            this.value = value;
+        }
+
+        public boolean contains(int x, int y, int z) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+
+        public boolean intersects(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            return minX <= this.maxX && maxX >= this.minX && minY <= this.maxY && maxY >= this.minY && minZ <= this.maxZ && maxZ >= this.minZ;
+        }
+
+        /**
+         * Returns the region this entry was added with, or null if it was added by its bounds.
+         */
+        public CuboidRegion getRegion() {
+            return region;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public int getMinX() {
+            return minX;
+        }
+
+        public int getMinY() {
+            return minY;
+        }
+
+        public int getMinZ() {
+            return minZ;
+        }
+
+        public int getMaxX() {
+            return maxX;
+        }
+
+        public int getMaxY() {
+            return maxY;
+        }
+
+        public int getMaxZ() {
+            return maxZ;
+        }
+    }
+}
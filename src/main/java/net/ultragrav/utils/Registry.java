@@ -3,17 +3,49 @@ package net.ultragrav.utils;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+/**
+ * Registry of objects by identifier and by numeric id.
+ * <p>
+ * Writes are serialized by a lock shared with all children. Reads never take that lock: they are optimistic
+ * reads validated against a write sequence (a seqlock), so they never observe a write halfway through and only
+ * retry if a write completed while they were reading.
+ * <p>
+ * Ids below {@link #MAX_ARRAY_ID} are also kept in an array, so {@link #get(int)} is an array load instead of a
+ * hash lookup with a boxed key.
+ * <p>
+ * A registry that will not change anymore can be {@link #freeze() frozen}, after which reads go through an
+ * immutable {@link FrozenRegistry}, the live tables are released and writes fail.
+ */
 public class Registry<I, T> {
-    private final Map<I, T> identifierToObject = new ConcurrentHashMap<>();
-    private final Map<Integer, T> idToObject = new ConcurrentHashMap<>();
-    private final Map<T, Integer> objectToId = new ConcurrentHashMap<>();
-    private final Map<T, I> objectToIdentifier = new ConcurrentHashMap<>();
+    /**
+     * Ids from 0 up to this are looked up in an array, others only in the map.
+     */
+    public static final int MAX_ARRAY_ID = 1 << 20;
+    private static final int INITIAL_ARRAY_SIZE = 64;
+
+    // Replaced by empty maps once frozen, a reader still holding the old ones retries as the freeze is a write
+    private volatile Map<I, T> identifierToObject = new ConcurrentHashMap<>();
+    private volatile Map<Integer, T> idToObject = new ConcurrentHashMap<>();
+    private volatile Map<T, Integer> objectToId = new ConcurrentHashMap<>();
+    private volatile Map<T, I> objectToIdentifier = new ConcurrentHashMap<>();
+    /**
+     * Mirror of idToObject for ids below MAX_ARRAY_ID, replaced by a larger copy under the write lock.
+     */
+    private volatile AtomicReferenceArray<T> idArray = new AtomicReferenceArray<>(INITIAL_ARRAY_SIZE);
+    private volatile CachedPalette<I> palette = null;
+    private volatile FrozenRegistry<I, T> frozen = null;
     private ReentrantLock lock = new ReentrantLock();
+    /**
+     * Odd while a write is in progress, incremented when the outermost write starts and ends.
+     */
+    private AtomicLong writeSequence = new AtomicLong();
 
     private final AtomicInteger idCounter = new AtomicInteger();
 
@@ -30,9 +62,99 @@ public class Registry<I, T> {
         registry.parent = this;
         registry.identifierTransformation = identifierTransformation;
         registry.lock = this.lock;
+        registry.writeSequence = this.writeSequence;
         return registry;
     }
 
+    private void beginWrite() {
+        lock.lock();
+        if (isFrozen()) {
+            lock.unlock();
+            throw new IllegalStateException("Registry is frozen!");
+        }
+        if (lock.getHoldCount() == 1) {
+            writeSequence.incrementAndGet();
+        }
+    }
+
+    private void endWrite() {
+        if (lock.getHoldCount() == 1) {
+            writeSequence.incrementAndGet();
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Starts an optimistic read, waiting out a write that is in progress on another thread.
+     *
+     * @return the sequence to pass to {@link #validateRead(long)}
+     */
+    private long beginRead() {
+        if (lock.isHeldByCurrentThread()) {
+            return -1; // Reads from within a write see that write's state
+        }
+        long sequence;
+        while (((sequence = writeSequence.get()) & 1) != 0) {
+            Thread.yield();
+        }
+        return sequence;
+    }
+
+    /**
+     * @return whether no write happened since {@link #beginRead()} returned the sequence
+     */
+    private boolean validateRead(long sequence) {
+        return sequence == -1 || writeSequence.get() == sequence;
+    }
+
+    /**
+     * Freezes this registry, after which it cannot be written to anymore. Neither can its children, as their writes
+     * would be passed on to this registry. The parents stay writable.
+     * <p>
+     * The live tables are released, all reads go through the returned snapshot from now on. Like in
+     * {@link FrozenRegistry}, objects are then looked up by identity and {@link #getId(Object)} and
+     * {@link #getIdByIdentifier(Object)} return {@link FrozenRegistry#NO_ID} if there is no such object.
+     *
+     * @return the frozen snapshot
+     */
+    public FrozenRegistry<I, T> freeze() {
+        lock.lock();
+        // A write as far as readers are concerned, so optimistic reads of the released tables retry
+        boolean outermost = lock.getHoldCount() == 1;
+        if (outermost) {
+            writeSequence.incrementAndGet();
+        }
+        try {
+            if (frozen == null) {
+                frozen = new FrozenRegistry<>(identifierToObject, idToObject, objectToId, objectToIdentifier);
+                identifierToObject = Collections.emptyMap();
+                idToObject = Collections.emptyMap();
+                objectToId = Collections.emptyMap();
+                objectToIdentifier = Collections.emptyMap();
+                idArray = new AtomicReferenceArray<>(0);
+                palette = null;
+            }
+            return frozen;
+        } finally {
+            if (outermost) {
+                writeSequence.incrementAndGet();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether this registry or one of its parents is frozen
+     */
+    public boolean isFrozen() {
+        for (Registry<I, ?> registry = this; registry != null; registry = registry.parent) {
+            if (registry.frozen != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Registers the object in the registry, with the given identifier.
      *
@@ -44,7 +166,7 @@ public class Registry<I, T> {
         if (identifier == null || object == null) {
             throw new IllegalArgumentException("Identifier or object cannot be null!");
         }
-        lock.lock();
+        beginWrite();
         try {
 
             if (idToObject.containsKey(id)) {
@@ -53,6 +175,7 @@ public class Registry<I, T> {
 
             identifierToObject.put(identifier, object);
             idToObject.put(id, object);
+            setArrayId(id, object);
             objectToId.put(object, id);
             objectToIdentifier.put(object, identifier);
 
@@ -60,7 +183,7 @@ public class Registry<I, T> {
                 parent.register(identifierTransformation.apply(identifier), object);
             }
         } finally {
-            lock.unlock();
+            endWrite();
         }
         return object;
     }
@@ -72,7 +195,7 @@ public class Registry<I, T> {
      * @return the object
      */
     public <B extends T> B register(I identifier, B object) {
-        lock.lock();
+        beginWrite();
         try {
             if (get(identifier) != null) {
                 unregister(identifier);
@@ -81,11 +204,67 @@ public class Registry<I, T> {
             while (idToObject.containsKey(id = idCounter.getAndIncrement())) ;
             register(identifier, object, id);
         } finally {
-            lock.unlock();
+            endWrite();
         }
         return object;
     }
 
+    /**
+     * Registers all objects with new ids, like {@link #register(Object, Object)} but taking the lock once and passing
+     * the whole batch to the parent at once. The new ids are one contiguous block.
+     *
+     * @param objects the objects by identifier
+     */
+    public void registerAll(Map<I, ? extends T> objects) {
+        for (Map.Entry<I, ? extends T> entry : objects.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new IllegalArgumentException("Identifier or object cannot be null!");
+            }
+        }
+        if (objects.isEmpty()) {
+            return;
+        }
+        beginWrite();
+        try {
+            for (I identifier : objects.keySet()) {
+                if (identifierToObject.containsKey(identifier)) {
+                    unregister(identifier);
+                }
+            }
+
+            int count = objects.size();
+            int start = idCounter.get();
+            for (int id = start; id < start + count; id++) {
+                if (idToObject.containsKey(id)) {
+                    start = id + 1;
+                }
+            }
+            idCounter.set(start + count);
+
+            Map<I, T> transformed = parent == null ? null : new LinkedHashMap<>((int) (count / 0.75f) + 1);
+            int id = start;
+            for (Map.Entry<I, ? extends T> entry : objects.entrySet()) {
+                I identifier = entry.getKey();
+                T object = entry.getValue();
+                identifierToObject.put(identifier, object);
+                idToObject.put(id, object);
+                setArrayId(id, object);
+                objectToId.put(object, id);
+                objectToIdentifier.put(object, identifier);
+                if (transformed != null) {
+                    transformed.put(identifierTransformation.apply(identifier), object);
+                }
+                id++;
+            }
+
+            if (parent != null) {
+                parent.registerAll(transformed);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
     /**
      * Gets the object with the given identifier.
      *
@@ -93,13 +272,18 @@ public class Registry<I, T> {
      * @return the object
      */
     public T get(I identifier) {
-        lock.lock();
-        try {
-            if (identifier == null) return null;
-            return identifierToObject.get(identifier);
-        } finally {
-            lock.unlock();
-        }
+        if (identifier == null) return null;
+        T object;
+        long sequence;
+        do {
+            sequence = beginRead();
+            FrozenRegistry<I, T> frozen = this.frozen;
+            if (frozen != null) {
+                return frozen.get(identifier);
+            }
+            object = identifierToObject.get(identifier);
+        } while (!validateRead(sequence));
+        return object;
     }
 
     /**
@@ -109,12 +293,22 @@ public class Registry<I, T> {
      * @return the object with the given id
      */
     public T get(int id) {
-        lock.lock();
-        try {
-            return idToObject.get(id);
-        } finally {
-            lock.unlock();
-        }
+        T object;
+        long sequence;
+        do {
+            sequence = beginRead();
+            FrozenRegistry<I, T> frozen = this.frozen;
+            if (frozen != null) {
+                return frozen.get(id);
+            }
+            AtomicReferenceArray<T> array = idArray;
+            if (id >= 0 && id < array.length()) {
+                object = array.get(id);
+            } else {
+                object = id >= 0 && id < MAX_ARRAY_ID ? null : idToObject.get(id);
+            }
+        } while (!validateRead(sequence));
+        return object;
     }
 
     /**
@@ -125,12 +319,17 @@ public class Registry<I, T> {
      */
     public I getIdentifier(T object) {
         if (object == null) return null;
-        lock.lock();
-        try {
-            return objectToIdentifier.get(object);
-        } finally {
-            lock.unlock();
-        }
+        I identifier;
+        long sequence;
+        do {
+            sequence = beginRead();
+            FrozenRegistry<I, T> frozen = this.frozen;
+            if (frozen != null) {
+                return frozen.getIdentifier(object);
+            }
+            identifier = objectToIdentifier.get(object);
+        } while (!validateRead(sequence));
+        return identifier;
     }
 
     /**
@@ -140,12 +339,18 @@ public class Registry<I, T> {
      * @return the id for the given identifier
      */
     public int getIdByIdentifier(I identifier) {
-        lock.lock();
-        try {
-            return objectToId.get(identifierToObject.get(identifier));
-        } finally {
-            lock.unlock();
-        }
+        Integer id;
+        long sequence;
+        do {
+            sequence = beginRead();
+            FrozenRegistry<I, T> frozen = this.frozen;
+            if (frozen != null) {
+                return frozen.getIdByIdentifier(identifier);
+            }
+            T object = identifierToObject.get(identifier);
+            id = object == null ? null : objectToId.get(object);
+        } while (!validateRead(sequence));
+        return id;
     }
 
     /**
@@ -155,12 +360,17 @@ public class Registry<I, T> {
      * @return the id of the given object
      */
     public int getId(T object) {
-        lock.lock();
-        try {
-            return objectToId.get(object);
-        } finally {
-            lock.unlock();
-        }
+        Integer id;
+        long sequence;
+        do {
+            sequence = beginRead();
+            FrozenRegistry<I, T> frozen = this.frozen;
+            if (frozen != null) {
+                return frozen.getId(object);
+            }
+            id = objectToId.get(object);
+        } while (!validateRead(sequence));
+        return id;
     }
 
     /**
@@ -169,7 +379,7 @@ public class Registry<I, T> {
      * @param identifierToId a mapping from identifiers to ids
      */
     public void assumeIds(Map<I, Integer> identifierToId) {
-        lock.lock();
+        beginWrite();
         try {
 
             // Create a copy of the object to id map.
@@ -190,6 +400,7 @@ public class Registry<I, T> {
                 // Remove the current id of the object from id to object map.
                 if (idToObject.get(objectToIdCopy.get(o)) == o) { // Only if it is still mapped to itself.
                     idToObject.remove(objectToIdCopy.get(o));
+                    setArrayId(objectToIdCopy.get(o), null);
                 }
 
                 // Set the object's new id.
@@ -197,6 +408,7 @@ public class Registry<I, T> {
 
                 // Replace the id in the id to object map.
                 T prev = idToObject.put(entry.getValue(), o);
+                setArrayId(entry.getValue(), o);
                 if (prev != null && prev != o) {
                     reAdd.add(prev);
                 }
@@ -212,17 +424,28 @@ public class Registry<I, T> {
                 int id;
                 while (idToObject.containsKey(id = idCounter.getAndIncrement())) ;
                 idToObject.put(id, o);
+                setArrayId(id, o);
                 objectToId.put(o, id);
             }
 
         } finally {
-            lock.unlock();
+            endWrite();
         }
     }
 
+    /**
+     * Returns the identifier to object map to iterate, a copy from the snapshot if frozen.
+     */
+    private Map<I, T> identifierMap() {
+        Map<I, T> identifierToObject = this.identifierToObject;
+        // Read after the map, so that the released empty map is never seen without the snapshot
+        FrozenRegistry<I, T> frozen = this.frozen;
+        return frozen != null ? frozen.asMap() : identifierToObject;
+    }
+
     public <K, V> Map<K, V> createMultiKeyMap(BiFunction<I, T, K[]> keyGen, BiFunction<I, T, V> valGen) {
         Map<K, V> ret = new HashMap<>();
-        for (Map.Entry<I, T> ent : identifierToObject.entrySet()) {
+        for (Map.Entry<I, T> ent : identifierMap().entrySet()) {
             for (K key : keyGen.apply(ent.getKey(), ent.getValue())) {
                 ret.put(key, valGen.apply(ent.getKey(), ent.getValue()));
             }
@@ -232,7 +455,7 @@ public class Registry<I, T> {
 
     public <K, V> Map<K, V> createMap(BiFunction<I, T, K> keyGen, BiFunction<I, T, V> valGen) {
         Map<K, V> ret = new HashMap<>();
-        for (Map.Entry<I, T> ent : identifierToObject.entrySet()) {
+        for (Map.Entry<I, T> ent : identifierMap().entrySet()) {
             ret.put(keyGen.apply(ent.getKey(), ent.getValue()), valGen.apply(ent.getKey(), ent.getValue()));
         }
         return ret;
@@ -244,6 +467,11 @@ public class Registry<I, T> {
      * @return a collection of all objects
      */
     public Collection<T> values() {
+        Map<Integer, T> idToObject = this.idToObject;
+        FrozenRegistry<I, T> frozen = this.frozen;
+        if (frozen != null) {
+            return frozen.values();
+        }
         return Collections.unmodifiableCollection(idToObject.values());
     }
 
@@ -251,18 +479,22 @@ public class Registry<I, T> {
      * Removes all objects from the object manager.
      */
     public void clear() {
-        lock.lock();
-        idCounter.set(0);
-        idToObject.clear();
-        objectToId.clear();
-        identifierToObject.keySet().forEach(it -> {
-            if (parent != null) {
-                parent.unregister(identifierTransformation.apply(it));
-            }
-        });
-        identifierToObject.clear();
-        objectToIdentifier.clear();
-        lock.unlock();
+        beginWrite();
+        try {
+            idCounter.set(0);
+            idToObject.clear();
+            idArray = new AtomicReferenceArray<>(INITIAL_ARRAY_SIZE);
+            objectToId.clear();
+            identifierToObject.keySet().forEach(it -> {
+                if (parent != null) {
+                    parent.unregister(identifierTransformation.apply(it));
+                }
+            });
+            identifierToObject.clear();
+            objectToIdentifier.clear();
+        } finally {
+            endWrite();
+        }
     }
 
     /**
@@ -271,33 +503,73 @@ public class Registry<I, T> {
      * @return a map of all identifiers to objects
      */
     public Map<I, T> asMap() {
-        return new HashMap<>(identifierToObject);
+        return new HashMap<>(identifierMap());
     }
 
     /**
-     * Returns a map of all ids to identifiers.
+     * Returns a map of all ids to identifiers. The map is cached until the next write, and cannot be modified.
      *
      * @return a map of all ids to identifiers
      */
     public Map<Integer, I> getPalette() {
-        lock.lock();
-        try {
-            Map<Integer, I> palette = new HashMap<>();
+        CachedPalette<I> cached = this.palette;
+        if (cached != null && cached.sequence == writeSequence.get()) {
+            return cached.palette;
+        }
+        Map<Integer, I> palette;
+        long sequence;
+        do {
+            sequence = beginRead();
+            FrozenRegistry<I, T> frozen = this.frozen;
+            if (frozen != null) {
+                return frozen.getPalette();
+            }
+            palette = new HashMap<>();
             for (Map.Entry<Integer, T> entry : idToObject.entrySet()) {
                 palette.put(entry.getKey(), objectToIdentifier.get(entry.getValue()));
             }
-            return palette;
-        } finally {
-            lock.unlock();
+        } while (!validateRead(sequence));
+        palette = Collections.unmodifiableMap(palette);
+        if (sequence != -1) {
+            // Tagged with the sequence it was read at, so a write that raced with this read still invalidates it
+            this.palette = new CachedPalette<>(sequence, palette);
         }
+        return palette;
+    }
+
+    /**
+     * Mirrors an id of idToObject into the id array, growing it if needed. Must hold the write lock.
+     */
+    private void setArrayId(Integer id, T object) {
+        if (id == null || id < 0 || id >= MAX_ARRAY_ID) {
+            return;
+        }
+        AtomicReferenceArray<T> array = idArray;
+        if (id >= array.length()) {
+            if (object == null) {
+                return;
+            }
+            int length = array.length();
+            while (length <= id) {
+                length <<= 1;
+            }
+            AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(Math.min(length, MAX_ARRAY_ID));
+            for (int i = 0; i < array.length(); i++) {
+                grown.lazySet(i, array.get(i));
+            }
+            idArray = array = grown;
+        }
+        array.set(id, object);
     }
 
     public T unregister(I identifier) {
-        lock.lock();
+        beginWrite();
         try {
             T object = identifierToObject.remove(identifier);
             if (object != null) {
-                idToObject.remove(objectToId.remove(object));
+                Integer id = objectToId.remove(object);
+                idToObject.remove(id);
+                setArrayId(id, null);
                 objectToIdentifier.remove(object);
             }
             if (parent != null) {
@@ -305,15 +577,27 @@ public class Registry<I, T> {
             }
             return object;
         } finally {
-            lock.unlock();
+            endWrite();
         }
     }
 
     public boolean isEmpty() {
-        return identifierToObject.isEmpty();
+        Map<I, T> identifierToObject = this.identifierToObject;
+        FrozenRegistry<I, T> frozen = this.frozen;
+        return frozen != null ? frozen.isEmpty() : identifierToObject.isEmpty();
     }
 
     public void forEach(Consumer<Map.Entry<I, T>> consumer) {
-        identifierToObject.entrySet().forEach(consumer);
+        identifierMap().entrySet().forEach(consumer);
+    }
+
+    private static final class CachedPalette<I> {
+        private final long sequence;
+        private final Map<Integer, I> palette;
+
+        private CachedPalette(long sequence, Map<Integer, I> palette) {
+            this.sequence = sequence;
+            this.palette = palette;
+        }
     }
 }
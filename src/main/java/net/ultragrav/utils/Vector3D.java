@@ -402,6 +402,10 @@ public class Vector3D implements GravSerializable {
         return new IntVector3D(getBlockX(), getBlockY(), getBlockZ());
     }
 
+    public MutableVector3D toMutable() {
+        return new MutableVector3D(this);
+    }
+
     @Override
     public void serialize(GravSerializer serializer) {
         serializer.writeDouble(this.x);
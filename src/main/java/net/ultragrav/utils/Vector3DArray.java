@@ -0,0 +1,300 @@
+package net.ultragrav.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Growable array of vectors stored as three parallel {@code double[]} columns. Batch operations run in place as
+ * plain counted loops over the columns, which the JIT can vectorize, instead of creating a new list of new
+ * {@link Vector3D}s per transform.
+ * <p>
+ * Not thread-safe.
+ */
+public class Vector3DArray {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private int size;
+
+    public Vector3DArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Vector3DArray(int capacity) {
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.zs = new double[capacity];
+    }
+
+    public Vector3DArray(Collection<Vector3D> vectors) {
+        this(vectors.size());
+        for (Vector3D vector : vectors) {
+            add(vector);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = Math.max(capacity, xs.length + (xs.length >> 1) + 1);
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+            zs = Arrays.copyOf(zs, newCapacity);
+        }
+    }
+
+    public void add(double x, double y, double z) {
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        size++;
+    }
+
+    public void add(Vector3D vector) {
+        add(vector.x, vector.y, vector.z);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    public double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    public double getZ(int index) {
+        checkIndex(index);
+        return zs[index];
+    }
+
+    public Vector3D get(int index) {
+        checkIndex(index);
+        return new Vector3D(xs[index], ys[index], zs[index]);
+    }
+
+    public void set(int index, double x, double y, double z) {
+        checkIndex(index);
+        xs[index] = x;
+        ys[index] = y;
+        zs[index] = z;
+    }
+
+    public void set(int index, Vector3D vector) {
+        set(index, vector.x, vector.y, vector.z);
+    }
+
+    /**
+     * Adds the offset to every vector.
+     */
+    public Vector3DArray translate(double x, double y, double z) {
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        double[] zs = this.zs;
+        int size = this.size;
+        for (int i = 0; i < size; i++) {
+            xs[i] += x;
+        }
+        for (int i = 0; i < size; i++) {
+            ys[i] += y;
+        }
+        for (int i = 0; i < size; i++) {
+            zs[i] += z;
+        }
+        return this;
+    }
+
+    public Vector3DArray translate(Vector3D offset) {
+        return translate(offset.x, offset.y, offset.z);
+    }
+
+    /**
+     * Adds the vectors of the other array element-wise.
+     */
+    public Vector3DArray add(Vector3DArray other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Sizes differ: " + size + " and " + other.size);
+        }
+        addColumn(xs, other.xs, size);
+        addColumn(ys, other.ys, size);
+        addColumn(zs, other.zs, size);
+        return this;
+    }
+
+    private static void addColumn(double[] target, double[] source, int size) {
+        for (int i = 0; i < size; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    public Vector3DArray scale(double x, double y, double z) {
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        double[] zs = this.zs;
+        int size = this.size;
+        for (int i = 0; i < size; i++) {
+            xs[i] *= x;
+        }
+        for (int i = 0; i < size; i++) {
+            ys[i] *= y;
+        }
+        for (int i = 0; i < size; i++) {
+            zs[i] *= z;
+        }
+        return this;
+    }
+
+    public Vector3DArray scale(double n) {
+        return scale(n, n, n);
+    }
+
+    public Vector3DArray clamp(Vector3D min, Vector3D max) {
+        clampColumn(xs, size, min.x, max.x);
+        clampColumn(ys, size, min.y, max.y);
+        clampColumn(zs, size, min.z, max.z);
+        return this;
+    }
+
+    private static void clampColumn(double[] column, int size, double min, double max) {
+        for (int i = 0; i < size; i++) {
+            column[i] = Math.min(Math.max(column[i], min), max);
+        }
+    }
+
+    /**
+     * Computes the squared distance of every vector to the point.
+     *
+     * @param point the point
+     * @param out   the array to write to, a new one is created if it is null or too small
+     * @return the array holding the distances
+     */
+    public double[] distanceSq(Vector3D point, double[] out) {
+        if (out == null || out.length < size) {
+            out = new double[size];
+        }
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        double[] zs = this.zs;
+        double px = point.x;
+        double py = point.y;
+        double pz = point.z;
+        for (int i = 0; i < size; i++) {
+            double dx = xs[i] - px;
+            double dy = ys[i] - py;
+            double dz = zs[i] - pz;
+            out[i] = dx * dx + dy * dy + dz * dz;
+        }
+        return out;
+    }
+
+    /**
+     * Returns the component-wise minimum of all vectors, or null if this array is empty.
+     */
+    public Vector3D getMinimum() {
+        if (size == 0) {
+            return null;
+        }
+        return new Vector3D(min(xs, size), min(ys, size), min(zs, size));
+    }
+
+    /**
+     * Returns the component-wise maximum of all vectors, or null if this array is empty.
+     */
+    public Vector3D getMaximum() {
+        if (size == 0) {
+            return null;
+        }
+        return new Vector3D(max(xs, size), max(ys, size), max(zs, size));
+    }
+
+    private static double min(double[] column, int size) {
+        double min = column[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    private static double max(double[] column, int size) {
+        double max = column[0];
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Applies {@link Vector3D#transform2D(double, double, double, double, double)} to every vector.
+     */
+    public Vector3DArray transform2D(double angle, double aboutX, double aboutZ, double translateX, double translateZ) {
+        angle = Math.toRadians(angle);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double[] xs = this.xs;
+        double[] zs = this.zs;
+        for (int i = 0; i < size; i++) {
+            double x = xs[i] - aboutX;
+            double z = zs[i] - aboutZ;
+            xs[i] = x * cos - z * sin + aboutX + translateX;
+            zs[i] = x * sin + z * cos + aboutZ + translateZ;
+        }
+        return this;
+    }
+
+    public Vector3DArray copy() {
+        Vector3DArray copy = new Vector3DArray(size);
+        System.arraycopy(xs, 0, copy.xs, 0, size);
+        System.arraycopy(ys, 0, copy.ys, 0, size);
+        System.arraycopy(zs, 0, copy.zs, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Returns a list view of this array, {@link List#get(int)} creates a {@link Vector3D} for the element and
+     * {@link List#set(int, Object)} writes through.
+     */
+    public List<Vector3D> asList() {
+        return new AbstractList<Vector3D>() {
+            @Override
+            public Vector3D get(int index) {
+                return Vector3DArray.this.get(index);
+            }
+
+            @Override
+            public Vector3D set(int index, Vector3D element) {
+                Vector3D previous = Vector3DArray.this.get(index);
+                Vector3DArray.this.set(index, element);
+                return previous;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
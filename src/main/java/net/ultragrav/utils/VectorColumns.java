@@ -0,0 +1,240 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.serializer.GravSerializer;
+import net.ultragrav.utils.function.IntTriConsumer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk serialization of vector collections, written as columns instead of one object per element.
+ * <p>
+ * Block positions are stored as three columns (x, y, z) of zigzag varints, each holding the difference to the
+ * previous element of the column. Positions that are close to each other in the input, for example a sorted
+ * {@code long[]} of {@link BlockPos packed} positions, usually take 1-2 bytes per component instead of 4.
+ */
+public final class VectorColumns {
+    private static final byte FORMAT_DELTA_VARINT = 1;
+    private static final byte FORMAT_RAW_DOUBLE = 2;
+
+    private VectorColumns() {
+    }
+
+    public static void writePositions(GravSerializer serializer, Collection<IntVector3D> positions) {
+        int count = positions.size();
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        int[] zs = new int[count];
+        int i = 0;
+        for (IntVector3D position : positions) {
+            xs[i] = position.x;
+            ys[i] = position.y;
+            zs[i] = position.z;
+            i++;
+        }
+        writeColumns(serializer, xs, ys, zs, count);
+    }
+
+    public static void writePacked(GravSerializer serializer, long[] packed) {
+        writePacked(serializer, packed, 0, packed.length);
+    }
+
+    public static void writePacked(GravSerializer serializer, long[] packed, int offset, int length) {
+        int[] xs = new int[length];
+        int[] ys = new int[length];
+        int[] zs = new int[length];
+        for (int i = 0; i < length; i++) {
+            long position = packed[offset + i];
+            xs[i] = BlockPos.unpackX(position);
+            ys[i] = BlockPos.unpackY(position);
+            zs[i] = BlockPos.unpackZ(position);
+        }
+        writeColumns(serializer, xs, ys, zs, length);
+    }
+
+    private static void writeColumns(GravSerializer serializer, int[] xs, int[] ys, int[] zs, int count) {
+        ByteWriter out = new ByteWriter(1 + count * 3 * 2);
+        out.write(FORMAT_DELTA_VARINT);
+        writeColumn(out, xs, count);
+        writeColumn(out, ys, count);
+        writeColumn(out, zs, count);
+        serializer.writeInt(count);
+        serializer.writeByteArray(out.toByteArray());
+    }
+
+    private static void writeColumn(ByteWriter out, int[] column, int count) {
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = column[i] - previous;
+            out.writeVarInt((delta << 1) ^ (delta >> 31));
+            previous = column[i];
+        }
+    }
+
+    /**
+     * Reads positions written by any of the position write methods, without creating an object per position.
+     *
+     * @param serializer the serializer
+     * @param consumer   called with every position, in the order they were written
+     */
+    public static void readPositions(GravSerializer serializer, IntTriConsumer consumer) {
+        int count = serializer.readInt();
+        ByteReader in = new ByteReader(serializer.readByteArray(), FORMAT_DELTA_VARINT);
+        int[] xs = readColumn(in, count);
+        int[] ys = readColumn(in, count);
+        int[] zs = readColumn(in, count);
+        for (int i = 0; i < count; i++) {
+            consumer.accept(xs[i], ys[i], zs[i]);
+        }
+    }
+
+    public static long[] readPacked(GravSerializer serializer) {
+        int count = serializer.readInt();
+        ByteReader in = new ByteReader(serializer.readByteArray(), FORMAT_DELTA_VARINT);
+        int[] xs = readColumn(in, count);
+        int[] ys = readColumn(in, count);
+        int[] zs = readColumn(in, count);
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            packed[i] = BlockPos.pack(xs[i], ys[i], zs[i]);
+        }
+        return packed;
+    }
+
+    public static List<IntVector3D> readPositions(GravSerializer serializer) {
+        List<IntVector3D> positions = new ArrayList<>();
+        readPositions(serializer, (x, y, z) -> positions.add(new IntVector3D(x, y, z)));
+        return positions;
+    }
+
+    private static int[] readColumn(ByteReader in, int count) {
+        int[] column = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int zigzag = in.readVarInt();
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            column[i] = previous;
+        }
+        return column;
+    }
+
+    /**
+     * Writes vectors as three columns of raw doubles.
+     */
+    public static void writeVectors(GravSerializer serializer, Collection<Vector3D> vectors) {
+        int count = vectors.size();
+        ByteWriter out = new ByteWriter(1 + count * 3 * 8);
+        out.write(FORMAT_RAW_DOUBLE);
+        for (Vector3D vector : vectors) {
+            out.writeLong(Double.doubleToRawLongBits(vector.x));
+        }
+        for (Vector3D vector : vectors) {
+            out.writeLong(Double.doubleToRawLongBits(vector.y));
+        }
+        for (Vector3D vector : vectors) {
+            out.writeLong(Double.doubleToRawLongBits(vector.z));
+        }
+        serializer.writeInt(count);
+        serializer.writeByteArray(out.toByteArray());
+    }
+
+    public static List<Vector3D> readVectors(GravSerializer serializer) {
+        int count = serializer.readInt();
+        ByteReader in = new ByteReader(serializer.readByteArray(), FORMAT_RAW_DOUBLE);
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] zs = new double[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = Double.longBitsToDouble(in.readLong());
+        }
+        for (int i = 0; i < count; i++) {
+            ys[i] = Double.longBitsToDouble(in.readLong());
+        }
+        for (int i = 0; i < count; i++) {
+            zs[i] = Double.longBitsToDouble(in.readLong());
+        }
+        List<Vector3D> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(new Vector3D(xs[i], ys[i], zs[i]));
+        }
+        return vectors;
+    }
+
+    private static final class ByteWriter {
+        private byte[] buffer;
+        private int size;
+
+        ByteWriter(int capacity) {
+            this.buffer = new byte[Math.max(16, capacity)];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length << 1, size + extra)];
+                System.arraycopy(buffer, 0, grown, 0, size);
+                buffer = grown;
+            }
+        }
+
+        void write(byte b) {
+            ensure(1);
+            buffer[size++] = b;
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[size];
+            System.arraycopy(buffer, 0, result, 0, size);
+            return result;
+        }
+    }
+
+    private static final class ByteReader {
+        private final byte[] buffer;
+        private int position;
+
+        ByteReader(byte[] buffer, byte expectedFormat) {
+            if (buffer.length == 0 || buffer[0] != expectedFormat) {
+                throw new IllegalStateException("Unexpected column format: " + (buffer.length == 0 ? "none" : buffer[0]));
+            }
+            this.buffer = buffer;
+            this.position = 1;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package net.ultragrav.utils;
+
+import net.ultragrav.utils.function.VoxelConsumer;
+import net.ultragrav.utils.function.VoxelCubeConsumer;
+
+/**
+ * Sparse octree storing an int per block position, for per-block data of regions that are mostly empty or uniform,
+ * like flags or {@link Registry} ids.
+ * <p>
+ * A node whose blocks all have the same value has no children, so filling a region costs memory proportional to
+ * its surface rather than its volume, and any uniform cube aligned to a power of two costs a single node.
+ * The tree covers [{@link #MIN}, {@link #MAX}] on every axis, blocks outside of that have the default value.
+ * <p>
+ * Not thread-safe.
+ */
+public class VoxelOctree {
+    public static final int DEPTH = 26;
+    public static final int MIN = -(1 << (DEPTH - 1));
+    public static final int MAX = (1 << (DEPTH - 1)) - 1;
+
+    private final int defaultValue;
+    private Node root;
+
+    public VoxelOctree() {
+        this(0);
+    }
+
+    /**
+     * @param defaultValue the value of every block that was not set
+     */
+    public VoxelOctree(int defaultValue) {
+        this.defaultValue = defaultValue;
+        this.root = new Node(defaultValue);
+    }
+
+    public int getDefaultValue() {
+        return defaultValue;
+    }
+
+    private static boolean inRange(int x, int y, int z) {
+        return x >= MIN && x <= MAX && y >= MIN && y <= MAX && z >= MIN && z <= MAX;
+    }
+
+    private static int childIndex(int x, int y, int z, int level) {
+        return (((x - MIN) >>> level) & 1) | ((((y - MIN) >>> level) & 1) << 1) | ((((z - MIN) >>> level) & 1) << 2);
+    }
+
+    public int get(int x, int y, int z) {
+        if (!inRange(x, y, z)) {
+            return defaultValue;
+        }
+        Node node = root;
+        for (int level = DEPTH - 1; node.children != null; level--) {
+            node = node.children[childIndex(x, y, z, level)];
+        }
+        return node.value;
+    }
+
+    public int get(IntVector3D position) {
+        return get(position.x, position.y, position.z);
+    }
+
+    /**
+     * Sets the value of a block.
+     *
+     * @throws IllegalArgumentException if the position is outside of [{@link #MIN}, {@link #MAX}]
+     */
+    public void set(int x, int y, int z, int value) {
+        if (!inRange(x, y, z)) {
+            throw new IllegalArgumentException("Position " + x + ", " + y + ", " + z + " is out of range!");
+        }
+        set(root, DEPTH, x, y, z, value);
+    }
+
+    public void set(IntVector3D position, int value) {
+        set(position.x, position.y, position.z, value);
+    }
+
+    private static void set(Node node, int level, int x, int y, int z, int value) {
+        if (node.children == null) {
+            if (node.value == value) {
+                return;
+            }
+            if (level == 0) {
+                node.value = value;
+                return;
+            }
+            node.split();
+        }
+        set(node.children[childIndex(x, y, z, level - 1)], level - 1, x, y, z, value);
+        node.collapse();
+    }
+
+    /**
+     * Resets a block to the default value.
+     */
+    public void remove(int x, int y, int z) {
+        if (inRange(x, y, z)) {
+            set(root, DEPTH, x, y, z, defaultValue);
+        }
+    }
+
+    /**
+     * Sets the value of every block of the region, the part of it outside of [{@link #MIN}, {@link #MAX}] is ignored.
+     */
+    public void fill(CuboidRegion region, int value) {
+        Vector3D min = region.getMinimumPoint();
+        Vector3D max = region.getMaximumPoint();
+        fill(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ(), value);
+    }
+
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int value) {
+        minX = Math.max(minX, MIN);
+        minY = Math.max(minY, MIN);
+        minZ = Math.max(minZ, MIN);
+        maxX = Math.min(maxX, MAX);
+        maxY = Math.min(maxY, MAX);
+        maxZ = Math.min(maxZ, MAX);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return;
+        }
+        fill(root, DEPTH, MIN, MIN, MIN, minX, minY, minZ, maxX, maxY, maxZ, value);
+    }
+
+    private static void fill(Node node, int level, int originX, int originY, int originZ,
+                             int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int value) {
+        // Use longs so the far corner of the root does not overflow
+        long endX = originX + (1L << level) - 1;
+        long endY = originY + (1L << level) - 1;
+        long endZ = originZ + (1L << level) - 1;
+        if (maxX < originX || maxY < originY || maxZ < originZ || minX > endX || minY > endY || minZ > endZ) {
+            return;
+        }
+        if (minX <= originX && minY <= originY && minZ <= originZ && maxX >= endX && maxY >= endY && maxZ >= endZ) {
+            node.children = null;
+            node.value = value;
+            return;
+        }
+        if (node.children == null) {
+            if (node.value == value) {
+                return;
+            }
+            node.split();
+        }
+        int half = 1 << (level - 1);
+        for (int i = 0; i < 8; i++) {
+            fill(node.children[i], level - 1,
+                    originX + ((i & 1) != 0 ? half : 0), originY + ((i & 2) != 0 ? half : 0), originZ + ((i & 4) != 0 ? half : 0),
+                    minX, minY, minZ, maxX, maxY, maxZ, value);
+        }
+        node.collapse();
+    }
+
+    /**
+     * Resets every block to the default value.
+     */
+    public void clear() {
+        root = new Node(defaultValue);
+    }
+
+    /**
+     * @return whether every block has the default value
+     */
+    public boolean isEmpty() {
+        return root.children == null && root.value == defaultValue;
+    }
+
+    /**
+     * Visits every block that does not have the default value. Large uniform cubes are visited block by block,
+     * use {@link #forEachCube(VoxelCubeConsumer)} to visit them as a whole.
+     */
+    public void forEach(VoxelConsumer consumer) {
+        forEachCube((minX, minY, minZ, size, value) -> {
+            for (int z = minZ; z < minZ + size; z++) {
+                for (int y = minY; y < minY + size; y++) {
+                    for (int x = minX; x < minX + size; x++) {
+                        consumer.accept(x, y, z, value);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Visits the cubes of uniform blocks that do not have the default value.
+     */
+    public void forEachCube(VoxelCubeConsumer consumer) {
+        forEachCube(root, DEPTH, MIN, MIN, MIN, consumer);
+    }
+
+    private void forEachCube(Node node, int level, int originX, int originY, int originZ, VoxelCubeConsumer consumer) {
+        if (node.children == null) {
+            if (node.value != defaultValue) {
+                consumer.accept(originX, originY, originZ, 1 << level, node.value);
+            }
+            return;
+        }
+        int half = 1 << (level - 1);
+        for (int i = 0; i < 8; i++) {
+            forEachCube(node.children[i], level - 1,
+                    originX + ((i & 1) != 0 ? half : 0), originY + ((i & 2) != 0 ? half : 0), originZ + ((i & 4) != 0 ? half : 0),
+                    consumer);
+        }
+    }
+
+    /**
+     * @return the number of nodes in the tree, a measure of its memory use
+     */
+    public int getNodeCount() {
+        return countNodes(root);
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node.children != null) {
+            for (Node child : node.children) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private static final class Node {
+        /**
+         * The value of every block of this node, only meaningful without children.
+         */
+        private int value;
+        private Node[] children;
+
+        private Node(int value) {
+            this.value = value;
+        }
+
+        private void split() {
+            children = new Node[8];
+            for (int i = 0; i < 8; i++) {
+                children[i] = new Node(value);
+            }
+        }
+
+        /**
+         * Removes the children if they all are uniform with the same value.
+         */
+        private void collapse() {
+            int first = children[0].value;
+            for (Node child : children) {
+                if (child.children != null || child.value != first) {
+                    return;
+                }
+            }
+            children = null;
+            value = first;
+        }
+    }
+}
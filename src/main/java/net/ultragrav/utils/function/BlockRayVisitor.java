@@ -0,0 +1,17 @@
+package net.ultragrav.utils.function;
+
+/**
+ * Visits the blocks a ray passes through, see {@link net.ultragrav.utils.BlockRayTracer}.
+ */
+@FunctionalInterface
+public interface BlockRayVisitor {
+    /**
+     * @param x    the block x coordinate
+     * @param y    the block y coordinate
+     * @param z    the block z coordinate
+     * @param face the face of the block the ray entered through, one of the
+     *             {@link net.ultragrav.utils.BlockPos} directions, or -1 for the block the ray starts in
+     * @return whether to continue to the next block
+     */
+    boolean visit(int x, int y, int z, int face);
+}
@@ -0,0 +1,9 @@
+package net.ultragrav.utils.function;
+
+/**
+ * Accepts three primitive ints, usually block coordinates, without boxing.
+ */
+@FunctionalInterface
+public interface IntTriConsumer {
+    void accept(int x, int y, int z);
+}
@@ -0,0 +1,9 @@
+package net.ultragrav.utils.function;
+
+/**
+ * Tests three primitive ints, usually block coordinates, without boxing.
+ */
+@FunctionalInterface
+public interface IntTriPredicate {
+    boolean test(int x, int y, int z);
+}
@@ -0,0 +1,16 @@
+package net.ultragrav.utils.function;
+
+/**
+ * Visits blocks one 16x16x16 chunk section at a time, see
+ * {@link net.ultragrav.utils.CuboidRegion#forEachBlockBySection(SectionVisitor)}.
+ */
+public interface SectionVisitor extends IntTriConsumer {
+    /**
+     * Called before the blocks of a section are visited.
+     *
+     * @param sectionX the chunk x coordinate
+     * @param sectionY the section index within the chunk, block y >> 4
+     * @param sectionZ the chunk z coordinate
+     */
+    void enterSection(int sectionX, int sectionY, int sectionZ);
+}
@@ -0,0 +1,9 @@
+package net.ultragrav.utils.function;
+
+/**
+ * Accepts a block position and the int value stored for it, without boxing.
+ */
+@FunctionalInterface
+public interface VoxelConsumer {
+    void accept(int x, int y, int z, int value);
+}
@@ -0,0 +1,17 @@
+package net.ultragrav.utils.function;
+
+/**
+ * Accepts a cube of blocks that all store the same int value, see
+ * {@link net.ultragrav.utils.VoxelOctree#forEachCube(VoxelCubeConsumer)}.
+ */
+@FunctionalInterface
+public interface VoxelCubeConsumer {
+    /**
+     * @param minX  the x coordinate of the minimum corner
+     * @param minY  the y coordinate of the minimum corner
+     * @param minZ  the z coordinate of the minimum corner
+     * @param size  the length of an edge, a power of two
+     * @param value the value of every block in the cube
+     */
+    void accept(int minX, int minY, int minZ, int size, int value);
+}
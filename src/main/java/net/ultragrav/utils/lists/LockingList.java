@@ -15,7 +15,22 @@ import java.util.function.Supplier;
  */
 public class LockingList<E> extends ArrayList<E> {
     @Getter
-    private final CustomLock lock = new CustomLock(true);
+    private final CustomLock lock;
+
+    public LockingList() {
+        this(true);
+    }
+
+    public LockingList(boolean fair) {
+        this.lock = new CustomLock(fair);
+    }
+
+    /**
+     * Creates a list guarded by the given lock, for example an {@link net.ultragrav.utils.locks.InstrumentedLock}.
+     */
+    public LockingList(CustomLock lock) {
+        this.lock = lock;
+    }
 
     @Override
     public int size() {
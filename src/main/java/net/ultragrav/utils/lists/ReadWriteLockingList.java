@@ -0,0 +1,259 @@
+package net.ultragrav.utils.lists;
+
+import lombok.Getter;
+import net.ultragrav.utils.locks.CustomReadWriteLock;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Based on ArrayList, but uses a read/write lock to prevent concurrent modification while letting reads
+ * run in parallel. Unlike {@link LockingList} the lock is not fair unless requested.
+ * <p>
+ * Iteration works on an immutable snapshot, which is only copied again after the list was modified.
+ *
+ * @param <E> Type of list
+ */
+public class ReadWriteLockingList<E> extends ArrayList<E> {
+    @Getter
+    private final CustomReadWriteLock lock;
+
+    /**
+     * Contents as of the last write, null if it has to be taken again. Only written while holding a lock.
+     */
+    private volatile Object[] snapshot;
+
+    public ReadWriteLockingList() {
+        this(false);
+    }
+
+    public ReadWriteLockingList(boolean fair) {
+        this.lock = new CustomReadWriteLock(fair);
+    }
+
+    private <T> T write(Supplier<T> sup) {
+        return lock.performWrite(() -> {
+            try {
+                return sup.get();
+            } finally {
+                // Cleared after the mutation, as it may have taken a snapshot itself (addAll(this), callbacks)
+                snapshot = null;
+            }
+        });
+    }
+
+    private void write(Runnable run) {
+        lock.performWrite(() -> {
+            try {
+                run.run();
+            } finally {
+                snapshot = null;
+            }
+        });
+    }
+
+    private Object[] currentSnapshot() {
+        Object[] snapshot = this.snapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        return lock.performRead(() -> {
+            // Taken under the read lock so that a concurrent write cannot be overwritten by an older snapshot
+            Object[] taken = this.snapshot;
+            if (taken == null) {
+                this.snapshot = taken = super.toArray();
+            }
+            return taken;
+        });
+    }
+
+    /**
+     * Returns an unmodifiable view of the contents as of now. Repeated calls return the same snapshot until
+     * the list is modified.
+     *
+     * @return the snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> snapshot() {
+        return (List<E>) Collections.unmodifiableList(Arrays.asList(currentSnapshot()));
+    }
+
+    @Override
+    public int size() {
+        return lock.performRead(super::size);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return lock.performRead(super::isEmpty);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return lock.performRead(() -> super.contains(o));
+    }
+
+    public ReadWriteLockingList<E> copy() {
+        ReadWriteLockingList<E> list = new ReadWriteLockingList<>(lock.isFair());
+        list.addAll(snapshot());
+        return list;
+    }
+
+    /**
+     * Iterates over a snapshot, see {@link #snapshot()}. Does not support removal.
+     */
+    @NotNull
+    @Override
+    public Iterator<E> iterator() {
+        return snapshot().iterator();
+    }
+
+    @NotNull
+    @Override
+    public Object[] toArray() {
+        return currentSnapshot().clone();
+    }
+
+    @NotNull
+    @Override
+    public <T> T[] toArray(@NotNull T[] a) {
+        return lock.performRead(() -> super.toArray(a));
+    }
+
+    @Override
+    public boolean add(E e) {
+        return write(() -> super.add(e));
+    }
+
+    /**
+     * Adds without taking the lock, the caller has to hold the write lock.
+     */
+    public boolean addInternal(E e) {
+        boolean added = super.add(e);
+        snapshot = null;
+        return added;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return write(() -> super.remove(o));
+    }
+
+    @Override
+    public boolean containsAll(@NotNull Collection<?> c) {
+        return lock.performRead(() -> super.containsAll(c));
+    }
+
+    @Override
+    public boolean addAll(@NotNull Collection<? extends E> c) {
+        return write(() -> super.addAll(c));
+    }
+
+    @Override
+    public boolean addAll(int index, @NotNull Collection<? extends E> c) {
+        return write(() -> super.addAll(index, c));
+    }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> c) {
+        return write(() -> super.removeAll(c));
+    }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> c) {
+        return write(() -> super.retainAll(c));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        return write(() -> super.removeIf(filter));
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        write(() -> super.replaceAll(operator));
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        write(() -> super.sort(c));
+    }
+
+    @Override
+    public void clear() {
+        write(super::clear);
+    }
+
+    @Override
+    public E get(int index) {
+        return lock.performRead(() -> super.get(index));
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return write(() -> super.set(index, element));
+    }
+
+    @Override
+    public void add(int index, E element) {
+        write(() -> super.add(index, element));
+    }
+
+    @Override
+    public E remove(int index) {
+        return write(() -> super.remove(index));
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return lock.performRead(() -> super.indexOf(o));
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return lock.performRead(() -> super.lastIndexOf(o));
+    }
+
+    /**
+     * Iterates over a snapshot, see {@link #snapshot()}. Does not support modification.
+     */
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator() {
+        return snapshot().listIterator();
+    }
+
+    /**
+     * Iterates over a snapshot, see {@link #snapshot()}. Does not support modification.
+     */
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return snapshot().listIterator(index);
+    }
+
+    /**
+     * Returns a range of a snapshot, see {@link #snapshot()}.
+     */
+    @NotNull
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return snapshot().subList(fromIndex, toIndex);
+    }
+
+    /**
+     * Iterates a snapshot outside the lock, see {@link #snapshot()}, so the consumer may modify the list and does
+     * not hold up writers.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> consumer) {
+        for (Object element : currentSnapshot()) {
+            consumer.accept((E) element);
+        }
+    }
+}
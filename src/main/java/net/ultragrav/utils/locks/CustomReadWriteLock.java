@@ -0,0 +1,53 @@
+package net.ultragrav.utils.locks;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Extension of ReentrantReadWriteLock with methods to perform a Runnable under either lock
+ */
+public class CustomReadWriteLock extends ReentrantReadWriteLock {
+    public CustomReadWriteLock() {
+        super();
+    }
+
+    public CustomReadWriteLock(boolean fair) {
+        super(fair);
+    }
+
+    public <T> T performRead(Supplier<T> sup) {
+        this.readLock().lock();
+        try {
+            return sup.get();
+        } finally {
+            this.readLock().unlock();
+        }
+    }
+
+    public void performRead(Runnable run) {
+        this.readLock().lock();
+        try {
+            run.run();
+        } finally {
+            this.readLock().unlock();
+        }
+    }
+
+    public <T> T performWrite(Supplier<T> sup) {
+        this.writeLock().lock();
+        try {
+            return sup.get();
+        } finally {
+            this.writeLock().unlock();
+        }
+    }
+
+    public void performWrite(Runnable run) {
+        this.writeLock().lock();
+        try {
+            run.run();
+        } finally {
+            this.writeLock().unlock();
+        }
+    }
+}
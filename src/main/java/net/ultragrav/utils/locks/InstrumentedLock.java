@@ -0,0 +1,118 @@
+package net.ultragrav.utils.locks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomLock} that records acquisitions, contention, wait and hold times into {@link LockStats}.
+ * Plain {@link CustomLock}s are unaffected, instrumentation is opted into by creating this class instead.
+ * <p>
+ * Only the outermost acquisition of a reentrant hold is recorded. Every {@code stackSampleInterval}th
+ * acquisition captures the holder's stack, so the longest sampled hold can be traced back to its caller.
+ * Time spent waiting on a {@link java.util.concurrent.locks.Condition} counts as hold time.
+ */
+public class InstrumentedLock extends CustomLock {
+    public static final int DEFAULT_STACK_SAMPLE_INTERVAL = 1024;
+
+    private final LockStats stats;
+    private final int stackSampleInterval;
+
+    // Only accessed by the holder
+    private long holdStart;
+    private long sampleCounter;
+    private StackTraceElement[] holderStack;
+
+    public InstrumentedLock(String name) {
+        this(name, false);
+    }
+
+    public InstrumentedLock(String name, boolean fair) {
+        this(name, fair, DEFAULT_STACK_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * @param name                the name the statistics are registered under, locks with the same name share them
+     * @param fair                whether the lock is fair
+     * @param stackSampleInterval capture the holder's stack every this many acquisitions, 0 to never capture it
+     */
+    public InstrumentedLock(String name, boolean fair, int stackSampleInterval) {
+        super(fair);
+        if (stackSampleInterval < 0) {
+            throw new IllegalArgumentException("Sample interval cannot be negative!");
+        }
+        this.stats = LockStats.register(name);
+        this.stackSampleInterval = stackSampleInterval;
+    }
+
+    public LockStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void lock() {
+        if (isHeldByCurrentThread()) {
+            super.lock();
+            return;
+        }
+        boolean contended = isLocked() || hasQueuedThreads();
+        long start = System.nanoTime();
+        super.lock();
+        acquired(contended, start);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (isHeldByCurrentThread()) {
+            super.lockInterruptibly();
+            return;
+        }
+        boolean contended = isLocked() || hasQueuedThreads();
+        long start = System.nanoTime();
+        super.lockInterruptibly();
+        acquired(contended, start);
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (isHeldByCurrentThread()) {
+            return super.tryLock();
+        }
+        long start = System.nanoTime();
+        if (!super.tryLock()) {
+            return false;
+        }
+        acquired(false, start);
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        if (isHeldByCurrentThread()) {
+            return super.tryLock(timeout, unit);
+        }
+        boolean contended = isLocked() || hasQueuedThreads();
+        long start = System.nanoTime();
+        if (!super.tryLock(timeout, unit)) {
+            return false;
+        }
+        acquired(contended, start);
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (getHoldCount() == 1) {
+            stats.recordHold(System.nanoTime() - holdStart, holderStack);
+            holderStack = null;
+        }
+        super.unlock();
+    }
+
+    private void acquired(boolean contended, long start) {
+        long now = System.nanoTime();
+        stats.recordAcquire(contended, now - start);
+        if (stackSampleInterval != 0 && ++sampleCounter % stackSampleInterval == 0) {
+            holderStack = Thread.currentThread().getStackTrace();
+        }
+        holdStart = System.nanoTime();
+    }
+}
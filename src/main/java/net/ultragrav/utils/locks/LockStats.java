@@ -0,0 +1,156 @@
+package net.ultragrav.utils.locks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention and hold-time statistics of an {@link InstrumentedLock}, meant to be polled, for example when
+ * a tick lags. All instances are registered by name, see {@link #getAll()}; locks with the same name share one
+ * instance.
+ */
+public class LockStats {
+    private static final Map<String, LockStats> REGISTERED = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final NanoHistogram waitTime = new NanoHistogram();
+    private final NanoHistogram holdTime = new NanoHistogram();
+
+    /**
+     * The longest sampled hold, null if nothing was sampled yet.
+     */
+    private final AtomicReference<SampledHold> maxSampledHold = new AtomicReference<>();
+
+    LockStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the statistics registered under the name, registering new ones if there are none. Locks sharing a
+     * name therefore record into the same statistics instead of replacing each other's.
+     */
+    static LockStats register(String name) {
+        return REGISTERED.computeIfAbsent(name, LockStats::new);
+    }
+
+    /**
+     * Returns the statistics of every instrumented lock that was not unregistered.
+     */
+    public static Collection<LockStats> getAll() {
+        return Collections.unmodifiableCollection(REGISTERED.values());
+    }
+
+    public static LockStats get(String name) {
+        return REGISTERED.get(name);
+    }
+
+    /**
+     * Removes these statistics from {@link #getAll()}, every lock with this name keeps recording into them.
+     */
+    public void unregister() {
+        REGISTERED.remove(name, this);
+    }
+
+    void recordAcquire(boolean contended, long waitNanos) {
+        acquisitions.increment();
+        if (contended) {
+            contendedAcquisitions.increment();
+            waitTime.record(waitNanos);
+        }
+    }
+
+    /**
+     * Called by the holder before releasing. Locks sharing a name share these statistics, so calls may overlap.
+     */
+    void recordHold(long holdNanos, StackTraceElement[] holderStack) {
+        holdTime.record(holdNanos);
+        if (holderStack == null) {
+            return;
+        }
+        SampledHold hold = null;
+        SampledHold current;
+        while ((current = maxSampledHold.get()) == null || holdNanos > current.nanos) {
+            if (hold == null) {
+                hold = new SampledHold(holdNanos, holderStack);
+            }
+            if (maxSampledHold.compareAndSet(current, hold)) {
+                return;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContendedAcquisitions() {
+        return contendedAcquisitions.sum();
+    }
+
+    /**
+     * Returns the time spent waiting for the lock, contended acquisitions only.
+     */
+    public NanoHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public NanoHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * Returns the longest hold time among the sampled acquisitions.
+     */
+    public long getMaxSampledHoldNanos() {
+        SampledHold hold = maxSampledHold.get();
+        return hold == null ? 0 : hold.nanos;
+    }
+
+    /**
+     * Returns the stack of the holder with the longest sampled hold time, or null if nothing was sampled yet.
+     */
+    public StackTraceElement[] getMaxHolderStack() {
+        SampledHold hold = maxSampledHold.get();
+        return hold == null ? null : hold.stack;
+    }
+
+    public void reset() {
+        acquisitions.reset();
+        contendedAcquisitions.reset();
+        waitTime.reset();
+        holdTime.reset();
+        maxSampledHold.set(null);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": acquisitions=" + getAcquisitions()
+                + ", contended=" + getContendedAcquisitions()
+                + ", wait p99=" + waitTime.getPercentileNanos(99) + "ns"
+                + ", hold mean=" + (long) holdTime.getMeanNanos() + "ns"
+                + ", hold p99=" + holdTime.getPercentileNanos(99) + "ns"
+                + ", hold max=" + holdTime.getMaxNanos() + "ns";
+    }
+
+    /**
+     * A hold time together with the stack of its holder, so both are always updated at once.
+     */
+    private static final class SampledHold {
+        private final long nanos;
+        private final StackTraceElement[] stack;
+
+        private SampledHold(long nanos, StackTraceElement[] stack) {
+            this.nanos = nanos;
+            this.stack = stack;
+        }
+    }
+}
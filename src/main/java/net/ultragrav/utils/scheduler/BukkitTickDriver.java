@@ -0,0 +1,33 @@
+package net.ultragrav.utils.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Ticks on the server's main thread, every server tick.
+ */
+public class BukkitTickDriver implements TickDriver {
+    private final Plugin plugin;
+    private BukkitTask task;
+
+    public BukkitTickDriver(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public synchronized void start(Runnable tick) {
+        if (task != null) {
+            throw new IllegalStateException("Driver is already started!");
+        }
+        task = Bukkit.getScheduler().runTaskTimer(plugin, tick, 1L, 1L);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package net.ultragrav.utils.scheduler;
+
+import net.ultragrav.utils.BlockCursor;
+import net.ultragrav.utils.CuboidRegion;
+import net.ultragrav.utils.function.IntTriConsumer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A visit of every block of a region, run a slice per tick by a {@link RegionJobScheduler}. The blocks are visited
+ * in the iteration order of {@link CuboidRegion}.
+ */
+public class RegionJob {
+    private final CuboidRegion region;
+    private final IntTriConsumer visitor;
+    private final BlockCursor cursor;
+    private final long volume;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private volatile long visited;
+    /**
+     * Moving average of the nanoseconds one block takes, 0 until the first batch is measured.
+     */
+    private double nanosPerBlock;
+    /**
+     * Size of the last batch, 0 before the first one.
+     */
+    private long lastBatch;
+
+    RegionJob(CuboidRegion region, IntTriConsumer visitor) {
+        this.region = region;
+        this.visitor = visitor;
+        this.cursor = region.cursor();
+        this.volume = cursor.getVolume();
+    }
+
+    /**
+     * Visits up to the given number of blocks.
+     *
+     * @return whether the job has finished
+     */
+    boolean run(long blocks) {
+        BlockCursor cursor = this.cursor;
+        IntTriConsumer visitor = this.visitor;
+        for (long i = 0; i < blocks; i++) {
+            if (!cursor.next()) {
+                break;
+            }
+            visitor.accept(cursor.x(), cursor.y(), cursor.z());
+        }
+        visited = cursor.getVisited();
+        return visited == volume;
+    }
+
+    double getNanosPerBlock() {
+        return nanosPerBlock;
+    }
+
+    void setNanosPerBlock(double nanosPerBlock) {
+        this.nanosPerBlock = nanosPerBlock;
+    }
+
+    long getLastBatch() {
+        return lastBatch;
+    }
+
+    void setLastBatch(long lastBatch) {
+        this.lastBatch = lastBatch;
+    }
+
+    void complete() {
+        future.complete(null);
+    }
+
+    void fail(Throwable throwable) {
+        future.completeExceptionally(throwable);
+    }
+
+    /**
+     * Stops the job before its next slice, its future is cancelled.
+     *
+     * @return whether the job was still running
+     */
+    public boolean cancel() {
+        return future.cancel(false);
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    /**
+     * @return a future completed when every block was visited, or completed exceptionally if the visitor threw
+     */
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+
+    public CuboidRegion getRegion() {
+        return region;
+    }
+
+    public long getVisited() {
+        return visited;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return the fraction of blocks visited, from 0 to 1
+     */
+    public double getProgress() {
+        return (double) visited / volume;
+    }
+}
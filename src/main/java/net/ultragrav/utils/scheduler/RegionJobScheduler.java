@@ -0,0 +1,161 @@
+package net.ultragrav.utils.scheduler;
+
+import net.ultragrav.utils.CuboidRegion;
+import net.ultragrav.utils.function.IntTriConsumer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs {@link RegionJob}s a slice per tick, spending at most a fixed time budget each tick, so operations over large
+ * regions do not freeze the thread that ticks it (usually the server's main thread).
+ * <p>
+ * Jobs run one after the other, in the order they were submitted. Each job measures how long its blocks take and
+ * sizes its batches to a fraction of the remaining budget, so the clock is read once per batch rather than once per
+ * block. A batch is at most twice as large as the one before, so a cheap sample cannot lead to a batch that overruns
+ * the tick by far when blocks get more expensive.
+ * <pre>{@code
+ * RegionJobScheduler scheduler = new RegionJobScheduler(new BukkitTickDriver(plugin), 5_000_000); // 5ms per tick
+ * scheduler.start();
+ * scheduler.submit(region, (x, y, z) -> world.getBlockAt(x, y, z).setType(Material.AIR))
+ *         .getFuture().thenRun(() -> player.sendMessage("Done!"));
+ * }</pre>
+ * Jobs can be submitted from any thread, {@link #tick()} must always be called from the same thread.
+ */
+public class RegionJobScheduler {
+    /**
+     * Blocks visited by the first batch of a job, before its cost is known.
+     */
+    private static final long INITIAL_BATCH = 64;
+    /**
+     * Weight of the latest measurement in the moving average of the cost per block.
+     */
+    private static final double SMOOTHING = 0.25;
+    /**
+     * Fraction of the remaining budget a batch is sized to take, leaving headroom for misestimates.
+     */
+    private static final double BUDGET_FRACTION = 0.5;
+    /**
+     * Factor a batch may grow by over the previous batch of the same job.
+     */
+    private static final long MAX_GROWTH = 2;
+
+    private final TickDriver driver;
+    private final long budgetNanos;
+    private final Queue<RegionJob> submitted = new ConcurrentLinkedQueue<>();
+    private final Deque<RegionJob> jobs = new ArrayDeque<>();
+
+    /**
+     * Creates a scheduler that is only ticked by calling {@link #tick()}.
+     *
+     * @param budgetNanos the time to spend per tick, in nanoseconds
+     */
+    public RegionJobScheduler(long budgetNanos) {
+        this(null, budgetNanos);
+    }
+
+    /**
+     * @param driver      the driver that ticks this scheduler once {@link #start() started}
+     * @param budgetNanos the time to spend per tick, in nanoseconds
+     */
+    public RegionJobScheduler(TickDriver driver, long budgetNanos) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Budget must be positive!");
+        }
+        this.driver = driver;
+        this.budgetNanos = budgetNanos;
+    }
+
+    public void start() {
+        if (driver == null) {
+            throw new IllegalStateException("Scheduler has no tick driver!");
+        }
+        driver.start(this::tick);
+    }
+
+    /**
+     * Stops ticking, jobs that have not finished are kept and resume when started again.
+     */
+    public void stop() {
+        if (driver != null) {
+            driver.stop();
+        }
+    }
+
+    /**
+     * Submits a visit of every block of the region.
+     *
+     * @param region  the region
+     * @param visitor the visitor, called from the ticking thread
+     * @return the job
+     */
+    public RegionJob submit(CuboidRegion region, IntTriConsumer visitor) {
+        RegionJob job = new RegionJob(region, visitor);
+        submitted.add(job);
+        return job;
+    }
+
+    /**
+     * Runs jobs until the budget of this tick is spent or no jobs are left.
+     */
+    public void tick() {
+        RegionJob submittedJob;
+        while ((submittedJob = submitted.poll()) != null) {
+            jobs.add(submittedJob);
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        long now = start;
+        while (!jobs.isEmpty() && now < deadline) {
+            RegionJob job = jobs.peek();
+            if (job.isDone()) { // Cancelled
+                jobs.poll();
+                continue;
+            }
+
+            double cost = job.getNanosPerBlock();
+            long batch = INITIAL_BATCH;
+            if (cost != 0) {
+                batch = (long) ((deadline - now) * BUDGET_FRACTION / cost);
+                batch = Math.max(1, Math.min(batch, job.getLastBatch() * MAX_GROWTH));
+            }
+            job.setLastBatch(batch);
+            long previous = job.getVisited();
+            boolean finished;
+            try {
+                finished = job.run(batch);
+            } catch (Throwable throwable) {
+                jobs.poll();
+                job.fail(throwable);
+                now = System.nanoTime();
+                continue;
+            }
+            long end = System.nanoTime();
+
+            long blocks = job.getVisited() - previous;
+            if (blocks > 0) {
+                double measured = (double) (end - now) / blocks;
+                job.setNanosPerBlock(cost == 0 ? measured : cost + SMOOTHING * (measured - cost));
+            }
+            if (finished) {
+                jobs.poll();
+                job.complete();
+            }
+            now = end;
+        }
+    }
+
+    /**
+     * @return the number of jobs that have not finished yet
+     */
+    public int getPendingJobs() {
+        return jobs.size() + submitted.size();
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+}
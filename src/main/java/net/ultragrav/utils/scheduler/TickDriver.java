@@ -0,0 +1,17 @@
+package net.ultragrav.utils.scheduler;
+
+/**
+ * Calls a {@link RegionJobScheduler} once per tick, see {@link BukkitTickDriver} for the server's main thread.
+ * Tests can drive the scheduler by calling {@link RegionJobScheduler#tick()} themselves instead.
+ */
+public interface TickDriver {
+    /**
+     * Starts calling the task once per tick.
+     */
+    void start(Runnable tick);
+
+    /**
+     * Stops calling the task.
+     */
+    void stop();
+}
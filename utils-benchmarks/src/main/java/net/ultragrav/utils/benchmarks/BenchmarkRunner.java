@@ -0,0 +1,43 @@
+package net.ultragrav.utils.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so allocation rates are reported next to the timings.
+ * <p>
+ * Usage: {@code java -jar target/benchmarks.jar [include regex]}
+ */
+public class BenchmarkRunner {
+    /**
+     * Additional reader thread counts for {@link RegistryBenchmark}, the first run covers a single thread.
+     */
+    private static final int[] REGISTRY_THREADS = {2, 4, 8, 16, 32};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+
+        if (!Pattern.compile(include).matcher(RegistryBenchmark.class.getName()).find()) {
+            return;
+        }
+        for (int threads : REGISTRY_THREADS) {
+            Options registryOptions = new OptionsBuilder()
+                    .include(RegistryBenchmark.class.getName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(registryOptions).run();
+        }
+    }
+}
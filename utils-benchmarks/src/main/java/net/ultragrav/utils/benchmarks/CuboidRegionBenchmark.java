@@ -0,0 +1,63 @@
+package net.ultragrav.utils.benchmarks;
+
+import net.ultragrav.utils.CuboidRegion;
+import net.ultragrav.utils.Vector3D;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iteration, containment and chunk lookups on regions from 1k to 10M blocks
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CuboidRegionBenchmark {
+    /**
+     * Region dimensions as width x height x length, from 1k to 10M blocks.
+     */
+    @Param({"10x10x10", "50x40x50", "100x100x100", "200x250x200"})
+    public String size;
+
+    private CuboidRegion region;
+    private Vector3D inside;
+    private Vector3D outside;
+
+    @Setup
+    public void setup() {
+        String[] parts = size.split("x");
+        int width = Integer.parseInt(parts[0]);
+        int height = Integer.parseInt(parts[1]);
+        int length = Integer.parseInt(parts[2]);
+        region = new CuboidRegion(null, new Vector3D(-width / 2, 0, -length / 2),
+                new Vector3D(width - width / 2 - 1, height - 1, length - length / 2 - 1));
+        inside = region.getCenter();
+        outside = region.getMaximumPoint().add(1, 1, 1);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        Iterator<Vector3D> iterator = region.iterator();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void contains(Blackhole blackhole) {
+        blackhole.consume(region.contains(inside));
+        blackhole.consume(region.contains(outside));
+    }
+
+    @Benchmark
+    public Set<Vector3D> chunkCubes() {
+        return region.getChunkCubes();
+    }
+}
@@ -0,0 +1,60 @@
+package net.ultragrav.utils.benchmarks;
+
+import net.ultragrav.utils.lists.LockingList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LockingList} with writers and iterating readers competing for the lock
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockingListBenchmark {
+    private static final int MAX_SIZE = 1024;
+
+    private LockingList<Integer> list;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        list = new LockingList<>();
+        for (int i = 0; i < MAX_SIZE / 2; i++) {
+            list.add(i);
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public void add() {
+        // Keep the list bounded so that iteration cost stays comparable across iterations
+        if (list.size() >= MAX_SIZE) {
+            list.clear();
+        }
+        list.add(1);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(6)
+    public void iterate(Blackhole blackhole) {
+        for (Integer i : list) {
+            blackhole.consume(i);
+        }
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    @GroupThreads(1)
+    public void addUncontended() {
+        if (list.size() >= MAX_SIZE) {
+            list.clear();
+        }
+        list.add(1);
+    }
+}
@@ -0,0 +1,44 @@
+package net.ultragrav.utils.benchmarks;
+
+import net.ultragrav.utils.Registry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read throughput of {@link Registry}. The thread count is swept by {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+    @Param({"256", "4096"})
+    public int entries;
+
+    private Registry<String, Object> registry;
+    private String[] identifiers;
+
+    @Setup
+    public void setup() {
+        registry = new Registry<>();
+        identifiers = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            identifiers[i] = "entry_" + i;
+            registry.register(identifiers[i], new Object());
+        }
+    }
+
+    @Benchmark
+    public Object getByIdentifier() {
+        return registry.get(identifiers[ThreadLocalRandom.current().nextInt(entries)]);
+    }
+
+    @Benchmark
+    public Object getById() {
+        return registry.get(ThreadLocalRandom.current().nextInt(entries));
+    }
+}
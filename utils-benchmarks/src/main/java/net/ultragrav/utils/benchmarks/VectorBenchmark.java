@@ -0,0 +1,69 @@
+package net.ultragrav.utils.benchmarks;
+
+import net.ultragrav.utils.IntVector3D;
+import net.ultragrav.utils.Vector3D;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arithmetic chains as they show up in per-tick movement code
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+    private Vector3D position;
+    private Vector3D velocity;
+    private Vector3D min;
+    private Vector3D max;
+
+    private IntVector3D blockPosition;
+    private IntVector3D offset;
+    private IntVector3D intMin;
+    private IntVector3D intMax;
+
+    @Setup
+    public void setup() {
+        position = new Vector3D(12.5, 64.0, -31.25);
+        velocity = new Vector3D(0.1, -0.08, 0.3);
+        min = new Vector3D(-100, 0, -100);
+        max = new Vector3D(100, 255, 100);
+
+        blockPosition = new IntVector3D(12, 64, -31);
+        offset = new IntVector3D(1, -1, 2);
+        intMin = new IntVector3D(-100, 0, -100);
+        intMax = new IntVector3D(100, 255, 100);
+    }
+
+    @Benchmark
+    public Vector3D vectorChain() {
+        return position.add(velocity)
+                .multiply(0.98)
+                .subtract(0, 0.08, 0)
+                .clamp(min, max)
+                .setY(64.0);
+    }
+
+    @Benchmark
+    public double vectorDistance() {
+        return position.add(velocity).distanceSq(max);
+    }
+
+    @Benchmark
+    public IntVector3D intVectorChain() {
+        return blockPosition.add(offset)
+                .multiply(2)
+                .subtract(1, 1, 1)
+                .clamp(intMin, intMax)
+                .setY(64);
+    }
+
+    @Benchmark
+    public int intVectorHash() {
+        return blockPosition.add(offset).hashCode();
+    }
+}